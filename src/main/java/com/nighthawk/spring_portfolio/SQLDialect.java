@@ -4,12 +4,26 @@ import org.hibernate.dialect.Dialect;
 import org.hibernate.dialect.function.SQLFunctionTemplate;
 import org.hibernate.dialect.function.StandardSQLFunction;
 import org.hibernate.dialect.function.VarArgsSQLFunction;
+import org.hibernate.dialect.identity.IdentityColumnSupport;
+import org.hibernate.dialect.identity.IdentityColumnSupportImpl;
+import org.hibernate.dialect.unique.DefaultUniqueDelegate;
+import org.hibernate.dialect.unique.UniqueDelegate;
+import org.hibernate.boot.Metadata;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.UniqueKey;
+import org.hibernate.type.IntegerType;
 import org.hibernate.type.StringType;
 
 import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
 
 /*
-This Dialect is brought into project to support SQLite
+This Dialect is brought into project to support SQLite (3.35+ for RETURNING, the bundled driver is 3.36)
+--- identity columns are read back with "insert ... returning rowid", one statement per insert
+--- json_* functions are usable in HQL/JPQL, ie "where json_extract(s.extra, '$.sleep') > 7"
+--- upsert(...) builds native ON CONFLICT statements for JDBC callers
  */
 public class SQLDialect extends Dialect {
     public SQLDialect() {
@@ -41,6 +55,48 @@ public class SQLDialect extends Dialect {
         registerFunction("mod", new SQLFunctionTemplate(StringType.INSTANCE, "?1 % ?2"));
         registerFunction("substr", new StandardSQLFunction("substr", StringType.INSTANCE));
         registerFunction("substring", new StandardSQLFunction("substr", StringType.INSTANCE));
+
+        // JSON1, built into SQLite; json_extract is read back as text (SQLite compares the real value), cast it for numbers
+        registerFunction("json_extract", new StandardSQLFunction("json_extract", StringType.INSTANCE));
+        registerFunction("json_set", new StandardSQLFunction("json_set", StringType.INSTANCE));
+        registerFunction("json_insert", new StandardSQLFunction("json_insert", StringType.INSTANCE));
+        registerFunction("json_replace", new StandardSQLFunction("json_replace", StringType.INSTANCE));
+        registerFunction("json_remove", new StandardSQLFunction("json_remove", StringType.INSTANCE));
+        registerFunction("json_patch", new StandardSQLFunction("json_patch", StringType.INSTANCE));
+        registerFunction("json_type", new StandardSQLFunction("json_type", StringType.INSTANCE));
+        registerFunction("json_valid", new StandardSQLFunction("json_valid", IntegerType.INSTANCE));
+        registerFunction("json_array_length", new StandardSQLFunction("json_array_length", IntegerType.INSTANCE));
+    }
+
+    /* "INSERT INTO table (a, b, c) VALUES (?, ?, ?) ON CONFLICT (a) DO UPDATE SET b = excluded.b, c = excluded.c"
+     * updateColumns empty gives "DO NOTHING"; one statement whether the row exists or not
+     */
+    public static String upsert(String table, List<String> columns, List<String> conflictColumns, List<String> updateColumns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                .append(String.join(", ", columns)).append(") VALUES (")
+                .append(String.join(", ", Collections.nCopies(columns.size(), "?"))).append(") ON CONFLICT (")
+                .append(String.join(", ", conflictColumns)).append(")");
+        if (updateColumns.isEmpty()) {
+            return sql.append(" DO NOTHING").toString();
+        }
+        sql.append(" DO UPDATE SET ");
+        for (int i = 0; i < updateColumns.size(); i++) {
+            String column = updateColumns.get(i);
+            sql.append(i == 0 ? "" : ", ").append(column).append(" = excluded.").append(column);
+        }
+        return sql.toString();
+    }
+
+    // Hibernate 5 reads identity support from here, the methods below are kept for older callers
+    @Override
+    public IdentityColumnSupport getIdentityColumnSupport() {
+        return new SQLiteIdentityColumnSupport();
+    }
+
+    // SQLite has no "alter table add constraint", unique keys are created as unique indexes instead
+    @Override
+    public UniqueDelegate getUniqueDelegate() {
+        return new SQLiteUniqueDelegate(this);
     }
 
     public boolean supportsIdentityColumns() {
@@ -137,4 +193,65 @@ public class SQLDialect extends Dialect {
     public boolean supportsCascadeDelete() {
         return false;
     }
-}
\ No newline at end of file
+
+    /*
+    "integer" primary key makes the column an alias of SQLite's rowid, so ids are assigned on insert
+    With hibernate.jdbc.use_get_generated_keys=false the id comes back from "returning rowid" on the insert itself,
+    the driver's getGeneratedKeys would run "select last_insert_rowid()" as a second statement
+     */
+    public static class SQLiteIdentityColumnSupport extends IdentityColumnSupportImpl {
+        @Override
+        public boolean supportsIdentityColumns() {
+            return true;
+        }
+
+        @Override
+        public boolean hasDataTypeInIdentityColumn() {
+            return false;
+        }
+
+        @Override
+        public String getIdentityColumnString(int type) {
+            return "integer";
+        }
+
+        @Override
+        public String getIdentitySelectString(String table, String column, int type) {
+            return "select last_insert_rowid()";
+        }
+
+        @Override
+        public boolean supportsInsertSelectIdentity() {
+            return true;
+        }
+
+        @Override
+        public String appendIdentitySelectToInsert(String insertString) {
+            return insertString + " returning rowid";
+        }
+    }
+
+    /*
+    Unique keys (@Column(unique=true), @Index(unique=true)) become "create unique index if not exists"
+     */
+    public static class SQLiteUniqueDelegate extends DefaultUniqueDelegate {
+        public SQLiteUniqueDelegate(Dialect dialect) {
+            super(dialect);
+        }
+
+        @Override
+        public String getAlterTableToAddUniqueKeyCommand(UniqueKey uniqueKey, Metadata metadata) {
+            StringJoiner columns = new StringJoiner(", ");
+            for (Column column : uniqueKey.getColumns()) {
+                columns.add(column.getQuotedName(dialect));
+            }
+            return "create unique index if not exists " + dialect.quote(uniqueKey.getName())
+                    + " on " + uniqueKey.getTable().getQuotedName(dialect) + " (" + columns + ")";
+        }
+
+        @Override
+        public String getAlterTableToDropUniqueKeyCommand(UniqueKey uniqueKey, Metadata metadata) {
+            return "drop index if exists " + dialect.quote(uniqueKey.getName());
+        }
+    }
+}
@@ -5,26 +5,45 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.nighthawk.spring_portfolio.mvc.covid.CovidService;
 import com.nighthawk.spring_portfolio.mvc.jokes.Jokes;
-import com.nighthawk.spring_portfolio.mvc.jokes.JokesJpaRepository;
+import com.nighthawk.spring_portfolio.mvc.jokes.JokesVoteService;
+import com.nighthawk.spring_portfolio.mvc.person.GoalLeaderboardService;
+import com.nighthawk.spring_portfolio.mvc.person.PersonStatRollupService;
+import com.nighthawk.spring_portfolio.mvc.person.PersonStatService;
+import com.nighthawk.spring_portfolio.mvc.seed.SeedService;
 
-import java.util.List;
+import java.util.Arrays;
 
 @Component // Scans Application for ModelInit Bean, this detects CommandLineRunner
 public class ModelInit {  
-    @Autowired JokesJpaRepository repository;
+    @Autowired SeedService seedService;
+    @Autowired JokesVoteService jokesVoteService;
+    @Autowired PersonStatService personStatService;
+    @Autowired PersonStatRollupService personStatRollupService;
+    @Autowired GoalLeaderboardService goalLeaderboardService;
+    @Autowired CovidService covidService;
 
     @Bean
     CommandLineRunner run() {  // The run() method will be executed after the application starts
         return args -> {
 
-            // Joke database is populated with starting jokes
-            String[] jokesArray = Jokes.init();
-            for (String joke : jokesArray) {
-                List<Jokes> test = repository.findByJokeIgnoreCase(joke);  // JPA lookup
-                if (test.size() == 0)
-                    repository.save(new Jokes(null, joke, 0, 0)); //JPA save
-            }
+            // Joke database is populated with starting jokes, only missing ones are inserted
+            seedService.seed(Jokes.class, Arrays.stream(Jokes.init()).map(joke -> new Jokes(null, joke, 0, 0)).toList());
+            // Votes, top and random jokes are served from memory after this
+            jokesVoteService.loadAll();
+
+            // Legacy person.stats JSON is moved into the person_stat table (once)
+            personStatService.migrateLegacyStats();
+
+            // Weekly/monthly rollups are backfilled once, later writes keep them current
+            personStatRollupService.backfillIfEmpty();
+
+            // Leaderboards are built in memory from stats and rollups, later writes adjust them
+            goalLeaderboardService.rebuild();
+
+            // COVID stats are served from the last stored snapshot until upstream is asked again
+            covidService.warmStart();
 
         };
     }
@@ -0,0 +1,140 @@
+package com.nighthawk.spring_portfolio.mvc.admin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import com.nighthawk.spring_portfolio.mvc.sqlite.SqliteBackupService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/*
+Operations endpoints, every request needs header "X-Admin-Token" equal to "admin.token"
+--- with no token configured (the default) every request is refused
+--- /backup(s): SQLite snapshots, /jfr: a Java Flight Recorder recording with the application events (FlightRecordingService)
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminApiController {
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+
+    @Value("${admin.token:}")
+    private String token;
+
+    @Autowired
+    private SqliteBackupService backupService;
+
+    @Autowired
+    private FlightRecordingService recordingService;
+
+    private boolean allowed(String given) {
+        return !token.isBlank() && given != null
+                && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /* POST a backup now, waits for it (or for the one already running)
+     * returns the snapshot file, its gzipped size, the database size and the time taken
+     */
+    @PostMapping("/backup")
+    public ResponseEntity<Object> backup(@RequestHeader(name = TOKEN_HEADER, required = false) String given) throws InterruptedException {
+        if (!allowed(given)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            return new ResponseEntity<>(backupService.backup().get(), HttpStatus.OK);
+        } catch (ExecutionException e) {
+            return new ResponseEntity<>(Map.of("error", String.valueOf(e.getCause())), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // GET the stored snapshots, newest first
+    @GetMapping("/backups")
+    public ResponseEntity<Object> backups(@RequestHeader(name = TOKEN_HEADER, required = false) String given) throws IOException {
+        if (!allowed(given)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        List<Map<String, Object>> snapshots = new ArrayList<>();
+        for (Path snapshot : backupService.list()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("file", snapshot.getFileName().toString());
+            entry.put("bytes", Files.size(snapshot));
+            entry.put("modified", Files.getLastModifiedTime(snapshot).toString());
+            snapshots.add(entry);
+        }
+        return new ResponseEntity<>(snapshots, HttpStatus.OK);
+    }
+
+    /* POST starts a flight recording, ?settings=default|profile and ?threshold=<ms> for the application events
+     * 409 while one is running, 400 for an unknown configuration
+     */
+    @PostMapping("/jfr/start")
+    public ResponseEntity<Object> startRecording(@RequestHeader(name = TOKEN_HEADER, required = false) String given,
+                                                 @RequestParam(defaultValue = "default") String settings,
+                                                 @RequestParam(defaultValue = "0") long threshold) throws IOException {
+        if (!allowed(given)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            return new ResponseEntity<>(recordingService.start(settings, Duration.ofMillis(threshold)), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.CONFLICT);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // POST stops the recording, it stays downloadable until the next start
+    @PostMapping("/jfr/stop")
+    public ResponseEntity<Object> stopRecording(@RequestHeader(name = TOKEN_HEADER, required = false) String given) {
+        if (!allowed(given)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        Map<String, Object> status = recordingService.stop();
+        return status == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(status, HttpStatus.OK);
+    }
+
+    // GET the state of the latest recording
+    @GetMapping("/jfr")
+    public ResponseEntity<Object> recording(@RequestHeader(name = TOKEN_HEADER, required = false) String given) {
+        if (!allowed(given)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        Map<String, Object> status = recordingService.status();
+        return status == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(status, HttpStatus.OK);
+    }
+
+    // GET the latest recording as a .jfr file, open it with JDK Mission Control or "jfr print"
+    @GetMapping("/jfr/download")
+    public ResponseEntity<Object> downloadRecording(@RequestHeader(name = TOKEN_HEADER, required = false) String given) throws IOException {
+        if (!allowed(given)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        InputStream data = recordingService.dump();
+        if (data == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        String file = "spring_portfolio-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr";
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file + "\"")
+                .body(new InputStreamResource(data));
+    }
+}
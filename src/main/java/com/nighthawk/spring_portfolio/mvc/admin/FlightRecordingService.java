@@ -0,0 +1,128 @@
+package com.nighthawk.spring_portfolio.mvc.admin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.nighthawk.spring_portfolio.mvc.calculator.CalculatorEvalEvent;
+import com.nighthawk.spring_portfolio.mvc.calculator.CalculatorParseEvent;
+import com.nighthawk.spring_portfolio.mvc.covid.CovidFetchEvent;
+import com.nighthawk.spring_portfolio.mvc.lights.LightBoardEvent;
+import com.nighthawk.spring_portfolio.mvc.person.StatsFlushEvent;
+import com.nighthawk.spring_portfolio.mvc.person.StatsMergeEvent;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/*
+FlightRecordingService runs one Java Flight Recorder recording at a time, for POST /api/admin/jfr/*
+--- a recording has the JDK events of a built-in configuration ("default" ~1% overhead, "profile" more detail)
+    plus the application's events, which are off in every other recording: calculator parse/eval, light board
+    operations, stats merges and flushes, COVID upstream fetches
+--- "threshold" drops application events shorter than it, so hot paths can stay recorded under load
+--- data is kept on disk up to "jfr.max-size" bytes and "jfr.max-age-minutes", older chunks are dropped
+--- dump() writes what has been recorded so far (running or stopped) to a temp file, deleted once read
+ */
+@Service
+public class FlightRecordingService {
+    public static final List<String> APPLICATION_EVENTS = List.of(CalculatorParseEvent.NAME, CalculatorEvalEvent.NAME,
+            LightBoardEvent.NAME, StatsMergeEvent.NAME, StatsFlushEvent.NAME, CovidFetchEvent.NAME);
+
+    private final long maxSize;
+    private final Duration maxAge;
+    private Recording recording;  // the latest, running or stopped; guarded by this
+
+    public FlightRecordingService(@Value("${jfr.max-size:268435456}") long maxSize,
+                                  @Value("${jfr.max-age-minutes:60}") long maxAgeMinutes) {
+        this.maxSize = maxSize;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+    }
+
+    /* Starts a recording, replacing a stopped one
+     * IllegalStateException when one is running, IllegalArgumentException for an unknown configuration
+     */
+    public synchronized Map<String, Object> start(String settings, Duration threshold) throws IOException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("a recording is already running");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (ParseException | IOException e) {
+            throw new IllegalArgumentException("unknown JFR configuration " + settings + ", use default or profile");
+        }
+        close();
+        Recording started = new Recording(configuration);
+        started.setName("spring_portfolio-" + settings);
+        started.setToDisk(true);
+        started.setMaxSize(maxSize);
+        started.setMaxAge(maxAge);
+        for (String event : APPLICATION_EVENTS) {
+            started.enable(event).withThreshold(threshold);
+        }
+        started.start();
+        recording = started;
+        return status();
+    }
+
+    // Stops the running recording, its data stays available to dump(); null when there is none
+    public synchronized Map<String, Object> stop() {
+        if (recording == null) {
+            return null;
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return status();
+    }
+
+    // State of the latest recording, null when there is none
+    public synchronized Map<String, Object> status() {
+        if (recording == null) {
+            return null;
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("name", recording.getName());
+        status.put("state", recording.getState().toString());
+        status.put("started", String.valueOf(recording.getStartTime()));
+        status.put("stopped", String.valueOf(recording.getStopTime()));
+        status.put("bytes", recording.getSize());
+        return status;
+    }
+
+    // The recorded data as a .jfr stream, the temp file behind it is deleted on close; null when there is no recording
+    public synchronized InputStream dump() throws IOException {
+        if (recording == null) {
+            return null;
+        }
+        Path file = Files.createTempFile("spring_portfolio-", ".jfr");
+        try {
+            recording.dump(file);
+            return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
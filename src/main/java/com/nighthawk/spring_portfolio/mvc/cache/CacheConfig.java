@@ -0,0 +1,26 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+* Registers HTTP response caching for endpoints that are pure functions of their URI
+*/
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public FilterRegistrationBean<ImmutableResponseFilter> immutableResponseFilter(
+            @Value("${cache.immutable.max-entries:10000}") int maxEntries,
+            @Value("${cache.immutable.max-age:31536000}") long maxAgeSeconds,
+            MeterRegistry registry) {
+        FilterRegistrationBean<ImmutableResponseFilter> registration = new FilterRegistrationBean<>(
+                new ImmutableResponseFilter(new ResponseByteCache(maxEntries), maxAgeSeconds, registry));
+        registration.addUrlPatterns("/api/calendar/isLeapYear/*", "/api/calculator/*");
+        return registration;
+    }
+}
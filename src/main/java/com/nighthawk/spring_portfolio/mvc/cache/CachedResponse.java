@@ -0,0 +1,47 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import org.springframework.util.DigestUtils;
+
+/* CachedResponse holds the serialized bytes of a successful response
+ * The strong ETag is derived from the bytes, so identical bodies always share a tag
+ */
+public class CachedResponse {
+    private final byte[] body;
+    private final String contentType;
+    private final String etag;
+
+    public CachedResponse(byte[] body, String contentType) {
+        this.body = body;
+        this.contentType = contentType;
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";  // quoted, strong (no W/ prefix)
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    /* If-None-Match may hold "*" or a comma separated list of tags, weak comparison applies (RFC 7232) */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/* ImmutableResponseFilter fronts endpoints whose output depends only on the URI (calendar, calculator)
+ * --- cache hit: answer If-None-Match with 304, or write the stored bytes, without calling the controller
+ * --- cache miss: run the controller once, keep the body if it is a 200, then answer as for a hit
+ * Responses carry a strong ETag and "Cache-Control: immutable" so browsers and CDNs absorb repeats
+ * Controllers that finish on another thread (execution.model=bulkhead) are stored on their async dispatch
+ * Hits and misses count in "http.response.cache.requests" (endpoint "immutable"), the stored responses in "http.response.cache.entries"
+ */
+public class ImmutableResponseFilter extends OncePerRequestFilter {
+    private final ResponseByteCache cache;
+    private final String cacheControl;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ImmutableResponseFilter(ResponseByteCache cache, long maxAgeSeconds, MeterRegistry registry) {
+        this.cache = cache;
+        this.cacheControl = "public, max-age=" + maxAgeSeconds + ", immutable";
+        this.hits = Counter.builder("http.response.cache.requests").tag("endpoint", "immutable").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("http.response.cache.requests").tag("endpoint", "immutable").tag("result", "miss").register(registry);
+        Gauge.builder("http.response.cache.entries", cache, ResponseByteCache::size).tag("endpoint", "immutable").register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // only safe reads are cacheable
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = request.getRequestURI();
+        if (isAsyncDispatch(request)) {  // a miss whose controller ran on another thread (bulkheads), response is its wrapper
+            chain.doFilter(request, response);
+            ContentCachingResponseWrapper pending = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            if (pending != null) {
+                store(key, pending, request);
+            }
+            return;
+        }
+        CachedResponse cached = cache.get(key);
+        if (cached == null) {
+            misses.increment();
+            // buffer the controller output so it can be stored before anything is committed
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(request, wrapper);
+            if (!isAsyncStarted(request)) {  // else stored on the async dispatch
+                store(key, wrapper, request);
+            }
+            return;
+        }
+        hits.increment();
+        write(cached, request, response);
+    }
+
+    // Keeps a buffered 200 and answers from it
+    private void store(String key, ContentCachingResponseWrapper wrapper, HttpServletRequest request) throws IOException {
+        if (wrapper.getStatus() != HttpStatus.OK.value()) {  // errors (ie unbalanced parentheses) are not cached
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        CachedResponse cached = new CachedResponse(wrapper.getContentAsByteArray(), wrapper.getContentType());
+        cache.put(key, cached);
+        write(cached, request, (HttpServletResponse) wrapper.getResponse());
+    }
+
+    // runs again on the async dispatch of a controller that finished on another thread
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, cached.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (cached.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(cached.getContentType());
+        response.setContentLength(cached.getBody().length);
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(cached.getBody());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/* PrecompressedResponse is one version of an endpoint's body, serialized once and compressed once
+ * Each encoding is a CachedResponse of its own, so each carries the strong ETag of its own bytes
+ * gzip is left out when the body is too small for it to pay off
+ */
+public class PrecompressedResponse {
+    private final long version;
+    private final CachedResponse identity;
+    private final CachedResponse gzip;  // null when not worth it
+
+    public PrecompressedResponse(long version, byte[] body, String contentType, int gzipMinBytes) {
+        this.version = version;
+        this.identity = new CachedResponse(body, contentType);
+        byte[] compressed = body.length >= gzipMinBytes ? gzip(body) : null;
+        this.gzip = compressed != null && compressed.length < body.length ? new CachedResponse(compressed, contentType) : null;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // in-memory streams do not fail
+        }
+        return out.toByteArray();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public CachedResponse getIdentity() {
+        return identity;
+    }
+
+    public CachedResponse getGzip() {
+        return gzip;
+    }
+}
@@ -0,0 +1,32 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* ResponseByteCache is a bounded, least-recently-used map from request URI to serialized response
+ * LinkedHashMap in access order evicts the eldest entry once maxEntries is exceeded
+ */
+public class ResponseByteCache {
+    private final Map<String, CachedResponse> entries;
+
+    public ResponseByteCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, CachedResponse response) {
+        entries.put(key, response);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,164 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/* VersionedResponseCache keeps the serialized (and gzipped) body of read endpoints whose data changes rarely
+ * --- the caller passes the current data version (ie a COVID fetch, a joke vote flush), the body is
+ *     serialized and compressed once per version and the same byte[] is written for every request after
+ * --- the encoding follows Accept-Encoding, responses carry "Vary: Accept-Encoding" and the ETag of the bytes sent,
+ *     a matching If-None-Match gets 304
+ * --- per endpoint metrics: "http.response.cache.requests" (result=hit|miss|not_modified),
+ *     "http.response.cache.bytes" sent and "http.response.cache.stored.bytes", both by encoding
+ */
+@Component
+public class VersionedResponseCache {
+    private static final String GZIP = "gzip";
+    private static final String IDENTITY = "identity";
+
+    private final ObjectMapper mapper;
+    private final MeterRegistry registry;
+    private final int gzipMinBytes;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public VersionedResponseCache(ObjectMapper mapper, MeterRegistry registry,
+                                  @Value("${cache.versioned.gzip-min-bytes:256}") int gzipMinBytes) {
+        this.mapper = mapper;
+        this.registry = registry;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    // state and meters of one endpoint
+    private class Endpoint {
+        volatile PrecompressedResponse current;
+        final Counter hits;
+        final Counter misses;
+        final Counter notModified;
+        final Counter identityBytes;
+        final Counter gzipBytes;
+
+        Endpoint(String name) {
+            hits = requests(name, "hit");
+            misses = requests(name, "miss");
+            notModified = requests(name, "not_modified");
+            identityBytes = Counter.builder("http.response.cache.bytes").tag("endpoint", name).tag("encoding", IDENTITY).register(registry);
+            gzipBytes = Counter.builder("http.response.cache.bytes").tag("endpoint", name).tag("encoding", GZIP).register(registry);
+            Gauge.builder("http.response.cache.stored.bytes", this, endpoint -> stored(endpoint.current, false))
+                    .tag("endpoint", name).tag("encoding", IDENTITY).register(registry);
+            Gauge.builder("http.response.cache.stored.bytes", this, endpoint -> stored(endpoint.current, true))
+                    .tag("endpoint", name).tag("encoding", GZIP).register(registry);
+        }
+
+        private Counter requests(String name, String result) {
+            return Counter.builder("http.response.cache.requests").tag("endpoint", name).tag("result", result).register(registry);
+        }
+
+        // Concurrent misses of one version serialize it once; an older version never replaces a newer one
+        synchronized PrecompressedResponse rebuild(long version, Supplier<byte[]> body) {
+            PrecompressedResponse response = current;
+            if (response != null && response.getVersion() >= version) {
+                return response;
+            }
+            misses.increment();
+            response = new PrecompressedResponse(version, body.get(), MediaType.APPLICATION_JSON_VALUE, gzipMinBytes);
+            current = response;
+            return response;
+        }
+    }
+
+    private static double stored(PrecompressedResponse response, boolean gzip) {
+        if (response == null) {
+            return 0;
+        }
+        CachedResponse variant = gzip ? response.getGzip() : response.getIdentity();
+        return variant == null ? 0 : variant.getBody().length;
+    }
+
+    // JSON of the value returned by body, serialized with the application's ObjectMapper
+    public ResponseEntity<byte[]> serveJson(String endpoint, long version, Supplier<?> body, HttpServletRequest request) {
+        return serve(endpoint, version, () -> {
+            try {
+                return mapper.writeValueAsBytes(body.get());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Response of " + endpoint + " is not serializable", e);
+            }
+        }, request);
+    }
+
+    // body already holds the JSON bytes
+    public ResponseEntity<byte[]> serve(String endpoint, long version, Supplier<byte[]> body, HttpServletRequest request) {
+        Endpoint state = endpoints.computeIfAbsent(endpoint, Endpoint::new);
+        PrecompressedResponse response = state.current;
+        if (response == null || response.getVersion() < version) {
+            response = state.rebuild(version, body);
+        } else {
+            state.hits.increment();
+        }
+
+        boolean gzip = response.getGzip() != null && accepts(request.getHeader(HttpHeaders.ACCEPT_ENCODING), GZIP);
+        CachedResponse variant = gzip ? response.getGzip() : response.getIdentity();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(variant.getEtag());
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (variant.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            state.notModified.increment();
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        (gzip ? state.gzipBytes : state.identityBytes).increment(variant.getBody().length);
+        // the stored array itself is written, nothing is copied or re-encoded per request
+        return new ResponseEntity<>(variant.getBody(), headers, HttpStatus.OK);
+    }
+
+    /* Accept-Encoding is a comma separated list of codings with optional q values, ie "gzip, deflate;q=0.5"
+     * an explicit entry for the coding wins over "*", q=0 means not acceptable
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String name = parts[0].trim();
+            boolean acceptable = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        acceptable = Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        acceptable = false;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(coding)) {
+                return acceptable;
+            }
+            if (name.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+}
@@ -6,6 +6,9 @@ import java.util.Map;
 import java.util.Stack;
 import java.lang.Math;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
 /* In mathematics,
     an expression or mathematical expression is a finite combination of symbols that is well-formed
     according to rules that depend on the context.
@@ -15,6 +18,12 @@ import java.lang.Math;
     to handle errors we perform try / catch or set default conditions to trap errors
      */
 public class Calculator {
+    // Stage timers ("calculator.stage" by stage), on the global registry Spring Boot adds its registry to
+    private static final Timer PARENTHESES = stageTimer("parentheses");
+    private static final Timer TOKENIZE = stageTimer("tokenize");
+    private static final Timer RPN = stageTimer("rpn");
+    private static final Timer EVALUATE = stageTimer("evaluate");
+
     // Key instance variables
     private String expression;
     private ArrayList<String> tokens;
@@ -48,17 +57,52 @@ public class Calculator {
         // original input
         this.expression = expression;
 
-        //parantheses check
-        this.checkParantheses();
-
-        // parse expression into terms
-        this.termTokenizer();
+        // JFR events cost nothing until a recording enables them, their fields are only filled when committed
+        CalculatorParseEvent parse = new CalculatorParseEvent();
+        parse.begin();
+        boolean parsed = false;
+        try {
+            //parantheses check
+            PARENTHESES.record(this::checkParantheses);
+
+            // parse expression into terms
+            TOKENIZE.record(this::termTokenizer);
+
+            // place terms into reverse polish notation
+            RPN.record(this::tokensToReversePolishNotation);
+            parsed = true;
+        } finally {
+            parse.end();
+            if (parse.shouldCommit()) {
+                parse.expression = expression;
+                parse.length = expression.length();
+                parse.tokens = tokens == null ? 0 : tokens.size();
+                parse.failed = !parsed;
+                parse.commit();
+            }
+        }
 
-        // place terms into reverse polish notation
-        this.tokensToReversePolishNotation();
+        CalculatorEvalEvent eval = new CalculatorEvalEvent();
+        eval.begin();
+        boolean evaluated = false;
+        try {
+            // calculate reverse polish notation
+            EVALUATE.record(this::rpnToResult);
+            evaluated = true;
+        } finally {
+            eval.end();
+            if (eval.shouldCommit()) {
+                eval.expression = expression;
+                eval.rpnTokens = reverse_polish.size();
+                eval.result = result;
+                eval.failed = !evaluated;
+                eval.commit();
+            }
+        }
+    }
 
-        // calculate reverse polish notation
-        this.rpnToResult();
+    private static Timer stageTimer(String stage) {
+        return Timer.builder("calculator.stage").tag("stage", stage).register(Metrics.globalRegistry);
     }
     
     private void checkParantheses() {
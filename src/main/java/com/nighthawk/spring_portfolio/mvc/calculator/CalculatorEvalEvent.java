@@ -0,0 +1,35 @@
+package com.nighthawk.spring_portfolio.mvc.calculator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+JFR event: evaluation of one expression's reverse polish notation
+--- off unless a recording enables it (see FlightRecordingService)
+ */
+@Name(CalculatorEvalEvent.NAME)
+@Label("Calculator Eval")
+@Category({ "Spring Portfolio", "Calculator" })
+@Description("Evaluation of one calculator expression from reverse polish notation")
+@Enabled(false)
+@StackTrace(false)
+public class CalculatorEvalEvent extends Event {
+    public static final String NAME = "spring_portfolio.CalculatorEval";
+
+    @Label("Expression")
+    String expression;
+
+    @Label("RPN Tokens")
+    int rpnTokens;
+
+    @Label("Result")
+    double result;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,35 @@
+package com.nighthawk.spring_portfolio.mvc.calculator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+JFR event: parentheses check, tokenizing and reverse polish conversion of one expression
+--- off unless a recording enables it (see FlightRecordingService), then fields are only filled for committed events
+ */
+@Name(CalculatorParseEvent.NAME)
+@Label("Calculator Parse")
+@Category({ "Spring Portfolio", "Calculator" })
+@Description("Parsing of one calculator expression into reverse polish notation")
+@Enabled(false)
+@StackTrace(false)
+public class CalculatorParseEvent extends Event {
+    public static final String NAME = "spring_portfolio.CalculatorParse";
+
+    @Label("Expression")
+    String expression;
+
+    @Label("Length")
+    int length;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Failed")
+    boolean failed;
+}
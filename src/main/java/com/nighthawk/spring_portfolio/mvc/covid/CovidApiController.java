@@ -1,63 +1,109 @@
 package com.nighthawk.spring_portfolio.mvc.covid;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.util.Date;
-import java.util.HashMap;
-
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.nighthawk.spring_portfolio.mvc.cache.VersionedResponseCache;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController // annotation to create a RESTful web services
 @RequestMapping("/api/covid")  //prefix of API
 public class CovidApiController {
-    private JSONObject body; //last run result
-    private HttpStatus status; //last run status
-    String last_run = null; //last run day of month
+
+    // shared client and cache, upstream is called at most once at a time and mostly in the background
+    @Autowired
+    private CovidService covidService;
+
+    // daily snapshots in SQLite, history never calls upstream
+    @Autowired
+    private CovidStore covidStore;
+
+    // upstream bytes and their gzip, kept per snapshot version
+    @Autowired
+    private VersionedResponseCache responseCache;
 
     // GET Covid 19 Stats
     @GetMapping("/daily")   //added to end of prefix as endpoint
-    public ResponseEntity<JSONObject> getCovid() {
-
-        //calls API once a day, sets body and status properties
-        String today = new Date().toString().substring(0,10); 
-        if (last_run == null || !today.equals(last_run))
-        {
-            try {  //APIs can fail (ie Internet or Service down)
-                
-                //RapidAPI header
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://corona-virus-world-and-india-data.p.rapidapi.com/api"))
-                    .header("x-rapidapi-key", "dec069b877msh0d9d0827664078cp1a18fajsn2afac35ae063")
-                    .header("x-rapidapi-host", "corona-virus-world-and-india-data.p.rapidapi.com")
-                    .method("GET", HttpRequest.BodyPublishers.noBody())
-                    .build();
-
-                //RapidAPI request and response
-                HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-
-                //JSONParser extracts text body and parses to JSONObject
-                this.body = (JSONObject) new JSONParser().parse(response.body());
-                this.status = HttpStatus.OK;  //200 success
-                this.last_run = today;
-            }
-            catch (Exception e) {  //capture failure info
-                HashMap<String, String> status = new HashMap<>();
-                status.put("status", "RapidApi failure: " + e);
-
-                //Setup object for error
-                this.body = (JSONObject) status;
-                this.status = HttpStatus.INTERNAL_SERVER_ERROR; //500 error
-                this.last_run = null;
+    public ResponseEntity<byte[]> getCovid(HttpServletRequest request) {
+        CovidService.Snapshot snapshot = covidService.get();
+        if (snapshot.getStatus() != HttpStatus.OK) {  // failures are not cached
+            return ResponseEntity.status(snapshot.getStatus()).contentType(MediaType.APPLICATION_JSON).body(snapshot.getBody());
+        }
+
+        //return the upstream JSON as received, compressed once per snapshot
+        return responseCache.serve("covid.daily", snapshot.getVersion(), snapshot::getBody, request);
+    }
+
+    /* GET one country's figures, looked up in the per-country index
+     * @param name: country name as upstream spells it (any case), or "world"
+     */
+    @GetMapping("/country/{name}")
+    public ResponseEntity<Map<String, Object>> getCountry(@PathVariable String name) {
+        CovidService.Snapshot snapshot = covidService.get();
+        if (snapshot.getStatus() != HttpStatus.OK) {  // upstream failed, an empty index is not "no such country"
+            return new ResponseEntity<>(snapshot.getStatus());
+        }
+        CovidCountry country = snapshot.country(name);
+        if (country == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(country.toMap(null), HttpStatus.OK);
+    }
+
+    /* GET several countries with only some fields, ie /countries?names=USA,India&fields=cases,deaths
+     * @param names: comma separated, all countries when absent; unknown names are left out
+     * @param fields: comma separated upstream keys (see CovidCountry.FIELDS), all when absent
+     */
+    @GetMapping("/countries")
+    public ResponseEntity<List<Map<String, Object>>> getCountries(@RequestParam(name = "names", required = false) String names,
+                                                                  @RequestParam(name = "fields", required = false) String fields) {
+        List<Integer> selected;
+        try {
+            selected = CovidCountry.fieldsOf(fields);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        CovidService.Snapshot snapshot = covidService.get();
+        if (snapshot.getStatus() != HttpStatus.OK) {  // upstream failed, an empty index is not "no countries"
+            return new ResponseEntity<>(snapshot.getStatus());
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (names == null || names.isBlank()) {
+            snapshot.getCountries().values().forEach(country -> result.add(country.toMap(selected)));
+        } else {
+            for (String name : names.split(",")) {
+                CovidCountry country = snapshot.country(name);
+                if (country != null) {
+                    result.add(country.toMap(selected));
+                }
             }
         }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 
-        //return JSONObject in RESTful style
-        return new ResponseEntity<>(body, status);
+    /* GET one country's stored days, read from SQLite
+     * @param from, to: inclusive ISO days (yyyy-MM-dd), default is everything stored
+     * @param fields: as for /countries
+     */
+    @GetMapping("/country/{name}/history")
+    public ResponseEntity<List<Map<String, Object>>> getHistory(@PathVariable String name,
+                                                                @RequestParam(name = "from", defaultValue = "0000-01-01") String from,
+                                                                @RequestParam(name = "to", defaultValue = "9999-12-31") String to,
+                                                                @RequestParam(name = "fields", required = false) String fields) {
+        List<Integer> selected;
+        try {
+            selected = CovidCountry.fieldsOf(fields);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(covidStore.history(name, from, to, selected), HttpStatus.OK);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+CovidCountry is one country's figures from the upstream payload, kept compact
+--- the name plus one double per numeric field, in FIELDS order (NaN when upstream sent "", "N/A", ...)
+--- field names are the upstream keys, so filtered queries use the names clients already know
+ */
+public class CovidCountry {
+    public static final List<String> FIELDS = List.of("cases", "deaths", "total_recovered", "new_deaths", "new_cases",
+            "serious_critical", "active_cases", "total_cases_per_1m_population", "deaths_per_1m_population",
+            "total_tests", "tests_per_1m_population");
+
+    private final String name;
+    private final double[] values;
+
+    public CovidCountry(String name, double[] values) {
+        this.name = name;
+        this.values = values;
+    }
+
+    public static CovidCountry empty(String name) {
+        double[] values = new double[FIELDS.size()];
+        Arrays.fill(values, Double.NaN);
+        return new CovidCountry(name, values);
+    }
+
+    // Index key, names are matched without regard to case or surrounding spaces
+    public static String keyOf(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // "cases,deaths" -> field indexes, null (all fields) when blank; IllegalArgumentException on an unknown field
+    public static List<Integer> fieldsOf(String names) {
+        if (names == null || names.isBlank()) {
+            return null;
+        }
+        List<Integer> fields = new ArrayList<>();
+        for (String name : names.split(",")) {
+            int field = FIELDS.indexOf(name.trim().toLowerCase(Locale.ROOT));
+            if (field < 0) {
+                throw new IllegalArgumentException("unknown field: " + name);
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // NaN when the field is unknown or was not a number
+    public double get(int field) {
+        return values[field];
+    }
+
+    // "1,234,567" -> 1234567, anything else that is not a number -> NaN
+    static double parse(String text) {
+        if (text == null) {
+            return Double.NaN;
+        }
+        String digits = text.replace(",", "").trim();
+        if (digits.isEmpty()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(digits);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // country_name plus the requested fields (all when fields is null), whole numbers as integers
+    public Map<String, Object> toMap(List<Integer> fields) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("country_name", name);
+        if (fields == null) {
+            for (int i = 0; i < values.length; i++) {
+                map.put(FIELDS.get(i), valueOf(values[i]));
+            }
+        } else {
+            for (int field : fields) {
+                map.put(FIELDS.get(field), valueOf(values[field]));
+            }
+        }
+        return map;
+    }
+
+    static Object valueOf(double value) {
+        if (Double.isNaN(value)) {
+            return null;
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return (long) value;
+        }
+        return value;
+    }
+}
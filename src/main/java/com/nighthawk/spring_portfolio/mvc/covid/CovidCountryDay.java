@@ -0,0 +1,65 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+CovidCountryDay is one country on one day, the history behind /api/covid/country/{name}/history
+--- (country_key, day) is unique, a day fetched twice keeps its latest figures
+--- numeric columns are named after the upstream keys (see CovidCountry.FIELDS)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "covid_country_day",
+       indexes = @Index(name = "ux_covid_country_day_key_day", columnList = "country_key, day", unique = true))
+public class CovidCountryDay {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "integer")
+    private Long id;
+
+    @Column(name = "country_key", nullable = false)
+    private String countryKey;
+
+    @Column(nullable = false)
+    private String day;
+
+    private String countryName;
+
+    private Double cases;
+    private Double deaths;
+    private Double totalRecovered;
+    private Double newDeaths;
+    private Double newCases;
+    private Double seriousCritical;
+    private Double activeCases;
+    @Column(name = "total_cases_per_1m_population")
+    private Double totalCasesPer1mPopulation;
+    @Column(name = "deaths_per_1m_population")
+    private Double deathsPer1mPopulation;
+    private Double totalTests;
+    @Column(name = "tests_per_1m_population")
+    private Double testsPer1mPopulation;
+
+    // Back to the in-memory form, fields in CovidCountry.FIELDS order
+    public CovidCountry toCountry() {
+        Double[] columns = { cases, deaths, totalRecovered, newDeaths, newCases, seriousCritical, activeCases,
+                totalCasesPer1mPopulation, deathsPer1mPopulation, totalTests, testsPer1mPopulation };
+        double[] values = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i] == null ? Double.NaN : columns[i];
+        }
+        return new CovidCountry(countryName, values);
+    }
+}
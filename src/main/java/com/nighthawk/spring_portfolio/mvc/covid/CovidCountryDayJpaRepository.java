@@ -0,0 +1,12 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(readOnly = true)  // declared queries are reads (SQLite reader pool), writes say @Transactional
+public interface CovidCountryDayJpaRepository extends JpaRepository<CovidCountryDay, Long> {
+    // Inclusive day range for one country, served by ux_covid_country_day_key_day
+    List<CovidCountryDay> findByCountryKeyAndDayBetweenOrderByDayAsc(String countryKey, String from, String to);
+}
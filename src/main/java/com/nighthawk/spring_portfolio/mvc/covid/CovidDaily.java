@@ -0,0 +1,39 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+CovidDaily is the upstream payload of one day, as received, so a restart can serve it without the network
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "covid_daily",
+       indexes = @Index(name = "ux_covid_daily_day", columnList = "day", unique = true))
+public class CovidDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "integer")
+    private Long id;
+
+    // "yyyy-MM-dd"
+    @Column(nullable = false)
+    private String day;
+
+    // epoch millis of the fetch
+    private long fetchedAt;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+}
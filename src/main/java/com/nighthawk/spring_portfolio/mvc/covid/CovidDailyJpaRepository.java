@@ -0,0 +1,11 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(readOnly = true)  // declared queries are reads (SQLite reader pool), writes say @Transactional
+public interface CovidDailyJpaRepository extends JpaRepository<CovidDaily, Long> {
+    Optional<CovidDaily> findTopByOrderByDayDesc();
+}
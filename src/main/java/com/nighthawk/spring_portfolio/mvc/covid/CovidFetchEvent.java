@@ -0,0 +1,37 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+JFR event: one fetch of the COVID upstream, from request through parsing and storing the snapshot
+--- off unless a recording enables it (see FlightRecordingService)
+ */
+@Name(CovidFetchEvent.NAME)
+@Label("COVID Upstream Fetch")
+@Category({ "Spring Portfolio", "COVID" })
+@Description("Request, parse and store of one upstream COVID payload")
+@Enabled(false)
+@StackTrace(false)
+public class CovidFetchEvent extends Event {
+    public static final String NAME = "spring_portfolio.CovidFetch";
+
+    @Label("Status")
+    int status;
+
+    @Label("Body Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Countries")
+    int countries;
+
+    @Label("Failure")
+    String failure;
+}
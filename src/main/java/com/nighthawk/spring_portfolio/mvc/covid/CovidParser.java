@@ -0,0 +1,82 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/*
+CovidParser reads the upstream payload with Jackson's streaming parser
+--- tokens are read once, straight into CovidCountry records; no tree of the whole payload is built
+--- countries are indexed by CovidCountry.keyOf(name), in upstream order
+--- unknown keys (and their nested values) are skipped
+ */
+public class CovidParser {
+    private static final JsonFactory FACTORY = new JsonFactory();
+    // world_total names two fields differently from countries_stat
+    private static final Map<String, String> ALIASES = Map.of("total_cases", "cases", "total_deaths", "deaths");
+
+    public static class Parsed {
+        public final Map<String, CovidCountry> countries = new LinkedHashMap<>();
+        public CovidCountry world = CovidCountry.empty("World");
+        public String takenAt;
+    }
+
+    public static Parsed parse(byte[] payload) throws IOException {
+        Parsed parsed = new Parsed();
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("countries_stat".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        CovidCountry country = readCountry(parser, null);
+                        if (country.getName() != null) {
+                            parsed.countries.put(CovidCountry.keyOf(country.getName()), country);
+                        }
+                    }
+                } else if ("world_total".equals(field) && value == JsonToken.START_OBJECT) {
+                    parsed.world = readCountry(parser, "World");
+                } else if ("statistic_taken_at".equals(field)) {
+                    parsed.takenAt = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return parsed;
+    }
+
+    // Reads the fields of one object, the parser is on its START_OBJECT and ends on its END_OBJECT
+    private static CovidCountry readCountry(JsonParser parser, String name) throws IOException {
+        String countryName = name;
+        double[] values = new double[CovidCountry.FIELDS.size()];
+        Arrays.fill(values, Double.NaN);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("country_name".equals(field)) {
+                countryName = parser.getValueAsString();
+                continue;
+            }
+            int index = CovidCountry.FIELDS.indexOf(ALIASES.getOrDefault(field, field));
+            if (index >= 0) {
+                values[index] = CovidCountry.parse(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new CovidCountry(countryName, values);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("COVID payload: expected " + expected + " but found " + actual);
+        }
+    }
+}
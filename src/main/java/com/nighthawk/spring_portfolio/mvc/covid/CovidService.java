@@ -0,0 +1,285 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PreDestroy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+/*
+CovidService proxies the RapidAPI COVID statistics through a refresh-ahead cache
+--- one shared HttpClient, with connect and request timeouts
+--- single flight: at most one upstream call at a time, every caller that needs it shares its result
+--- refresh-ahead: once data is "covid.cache.refresh-after-seconds" old a background refresh starts,
+    callers keep getting the cached (stale) data meanwhile and never wait for upstream
+--- only a cold cache (nothing fetched yet) waits, for at most the request timeout
+--- a failed refresh keeps the last good data, the next attempt waits "covid.cache.retry-seconds";
+    a cold cache answers with that failure meanwhile, so callers do not start an upstream call each
+--- each fetch is stream-parsed once into per-country records (CovidParser), indexed by CovidCountry.keyOf(name)
+--- each fetch is also kept as the day's snapshot in SQLite (CovidStore), warmStart() serves it after a restart
+ */
+@Service
+public class CovidService {
+    private static final Logger log = LoggerFactory.getLogger(CovidService.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // one upstream result, replaced as a whole so readers never see a mix of two fetches
+    public static class Snapshot {
+        private final byte[] body;  // the upstream JSON as received, served as is by /daily
+        private final HttpStatus status;
+        private final Map<String, CovidCountry> countries;
+        private final CovidCountry world;
+        private final String takenAt;
+        private final Instant fetchedAt;
+        private final long version;  // increases with every successful fetch
+
+        Snapshot(byte[] body, HttpStatus status, CovidParser.Parsed parsed, Instant fetchedAt, long version) {
+            this.body = body;
+            this.status = status;
+            this.countries = parsed == null ? Collections.emptyMap() : Collections.unmodifiableMap(parsed.countries);
+            this.world = parsed == null ? CovidCountry.empty("World") : parsed.world;
+            this.takenAt = parsed == null ? null : parsed.takenAt;
+            this.fetchedAt = fetchedAt;
+            this.version = version;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+
+        // null when the country is not in this snapshot, "world" is the world total
+        public CovidCountry country(String name) {
+            String key = CovidCountry.keyOf(name);
+            return CovidStore.WORLD.equals(key) ? world : countries.get(key);
+        }
+
+        public Map<String, CovidCountry> getCountries() {
+            return countries;
+        }
+
+        public CovidCountry getWorld() {
+            return world;
+        }
+
+        public String getTakenAt() {
+            return takenAt;
+        }
+
+        public Instant getFetchedAt() {
+            return fetchedAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    private final CovidStore store;
+    private final HttpClient client;
+    private final URI uri;
+    private final String apiKey;
+    private final String apiHost;
+    private final Duration requestTimeout;
+    private final Duration refreshAfter;
+    private final Duration retryAfter;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Snapshot>> inFlight = new AtomicReference<>();
+    private volatile Instant lastFailure = Instant.EPOCH;
+    private volatile Snapshot failed;  // the latest failed fetch, answered to a cold cache until retryAfter passes
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "covid-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CovidService(CovidStore store,
+                        @Value("${covid.api.url:https://corona-virus-world-and-india-data.p.rapidapi.com/api}") String url,
+                        @Value("${covid.api.key:dec069b877msh0d9d0827664078cp1a18fajsn2afac35ae063}") String apiKey,
+                        @Value("${covid.api.host:corona-virus-world-and-india-data.p.rapidapi.com}") String apiHost,
+                        @Value("${covid.api.connect-timeout-ms:2000}") long connectTimeoutMs,
+                        @Value("${covid.api.request-timeout-ms:5000}") long requestTimeoutMs,
+                        @Value("${covid.cache.refresh-after-seconds:86400}") long refreshAfterSeconds,
+                        @Value("${covid.cache.retry-seconds:60}") long retrySeconds) {
+        this.store = store;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.uri = URI.create(url);
+        this.apiKey = apiKey;
+        this.apiHost = apiHost;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.refreshAfter = Duration.ofSeconds(refreshAfterSeconds);
+        this.retryAfter = Duration.ofSeconds(retrySeconds);
+    }
+
+    // Last stored snapshot, so a restart serves data at once; its age still decides when to refresh
+    public void warmStart() {
+        store.latest().ifPresent(daily -> {
+            try {
+                byte[] body = daily.getPayload().getBytes(StandardCharsets.UTF_8);
+                Snapshot snapshot = new Snapshot(body, HttpStatus.OK, CovidParser.parse(body), Instant.ofEpochMilli(daily.getFetchedAt()), 1);
+                if (current.compareAndSet(null, snapshot)) {
+                    log.info("COVID cache warmed from the {} snapshot, {} countries", daily.getDay(), snapshot.countries.size());
+                }
+            } catch (Exception e) {
+                log.warn("COVID snapshot of {} could not be read, waiting for upstream", daily.getDay(), e);
+            }
+        });
+    }
+
+    // Cached data, refreshed in the background when old; only a cold cache waits for upstream
+    public Snapshot get() {
+        Snapshot snapshot = current.get();
+        Instant now = Instant.now();
+        if (snapshot == null) {
+            Snapshot failure = failed;
+            return failure != null && lastFailure.plus(retryAfter).isAfter(now) ? failure : awaitFirst();
+        }
+        if (snapshot.fetchedAt.plus(refreshAfter).isBefore(now) && lastFailure.plus(retryAfter).isBefore(now)) {
+            refresh();  // not awaited, this caller gets the stale snapshot
+        }
+        return snapshot;
+    }
+
+    private Snapshot awaitFirst() {
+        try {
+            Snapshot snapshot = refresh().get(requestTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS);
+            if (snapshot != null) {
+                return snapshot;
+            }
+        } catch (TimeoutException e) {
+            return failure("RapidApi failure: " + e);
+        } catch (Exception e) {
+            return failure("RapidApi failure: " + (e.getCause() == null ? e : e.getCause()));
+        }
+        return failure("RapidApi failure: no data");
+    }
+
+    // Starts a fetch unless one is running, either way returns the running one
+    public CompletableFuture<Snapshot> refresh() {
+        CompletableFuture<Snapshot> started = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = inFlight.compareAndExchange(null, started);
+        if (running != null) {
+            return running;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    started.complete(fetch());
+                } catch (Exception e) {
+                    failed = failure("RapidApi failure: " + e);
+                    lastFailure = Instant.now();
+                    log.warn("COVID refresh from {} failed, serving cached data", uri, e);
+                    started.completeExceptionally(e);
+                } finally {
+                    inFlight.set(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // stopped: nothing will run this fetch, the next refresh must not be handed a future that never completes
+            inFlight.set(null);
+            started.completeExceptionally(e);
+        }
+        return started;
+    }
+
+    // JFR CovidFetchEvent around the whole fetch, its fields are only filled when it will be committed
+    private Snapshot fetch() throws Exception {
+        CovidFetchEvent event = new CovidFetchEvent();
+        event.begin();
+        HttpResponse<byte[]> response = null;
+        Snapshot snapshot = null;
+        Exception failure = null;
+        try {
+            response = send();
+            snapshot = accept(response);
+            return snapshot;
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.status = response == null ? 0 : response.statusCode();
+                event.bytes = response == null ? 0 : response.body().length;
+                event.countries = snapshot == null ? 0 : snapshot.getCountries().size();
+                event.failure = failure == null ? null : String.valueOf(failure);
+                event.commit();
+            }
+        }
+    }
+
+    private HttpResponse<byte[]> send() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(requestTimeout)
+                .header("x-rapidapi-key", apiKey)
+                .header("x-rapidapi-host", apiHost)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    // Parses and publishes a 200 answer, then stores it as the day's snapshot
+    private Snapshot accept(HttpResponse<byte[]> response) throws Exception {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("upstream status " + response.statusCode());
+        }
+        byte[] body = response.body();
+        CovidParser.Parsed parsed = CovidParser.parse(body);
+        Snapshot previous = current.get();
+        Snapshot snapshot = new Snapshot(body, HttpStatus.OK, parsed, Instant.now(), previous == null ? 1 : previous.version + 1);
+        current.set(snapshot);
+        try {
+            // still on the refresher thread, readers already have the new snapshot
+            store.save(LocalDate.ofInstant(snapshot.fetchedAt, ZoneOffset.UTC).toString(), snapshot.fetchedAt.toEpochMilli(),
+                    new String(body, StandardCharsets.UTF_8), parsed);
+        } catch (Exception e) {
+            log.warn("COVID snapshot could not be stored, history misses this fetch", e);
+        }
+        return snapshot;
+    }
+
+    private static Snapshot failure(String message) {
+        byte[] body;
+        try {
+            body = MAPPER.writeValueAsBytes(Map.of("status", message));
+        } catch (JsonProcessingException e) {
+            body = "{\"status\":\"RapidApi failure\"}".getBytes(StandardCharsets.UTF_8);
+        }
+        return new Snapshot(body, HttpStatus.INTERNAL_SERVER_ERROR, null, Instant.now(), 0);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.nighthawk.spring_portfolio.SQLDialect;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/*
+CovidStore keeps one snapshot per day in SQLite
+--- covid_daily: the payload as received, loaded at startup so the first request does not wait for upstream
+--- covid_country_day: one row per country and day, so history is a range read instead of a network call
+--- a day fetched again replaces that day's rows (upserts on the unique indexes)
+ */
+@Service
+public class CovidStore {
+    public static final String WORLD = "world";
+    private static final String DAILY_UPSERT = SQLDialect.upsert("covid_daily",
+            List.of("day", "fetched_at", "payload"), List.of("day"), List.of("fetched_at", "payload"));
+    private static final String COUNTRY_DAY_UPSERT;
+
+    static {
+        List<String> columns = new ArrayList<>(List.of("country_key", "day", "country_name"));
+        columns.addAll(CovidCountry.FIELDS);
+        COUNTRY_DAY_UPSERT = SQLDialect.upsert("covid_country_day", columns, List.of("country_key", "day"),
+                columns.subList(2, columns.size()));
+    }
+
+    @Autowired
+    private CovidDailyJpaRepository dailyRepository;
+
+    @Autowired
+    private CovidCountryDayJpaRepository countryDayRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void save(String day, long fetchedAt, String payload, CovidParser.Parsed parsed) {
+        jdbcTemplate.update(DAILY_UPSERT, day, fetchedAt, payload);
+        List<Object[]> rows = new ArrayList<>(parsed.countries.size() + 1);
+        parsed.countries.forEach((key, country) -> rows.add(row(key, day, country)));
+        rows.add(row(WORLD, day, parsed.world));
+        jdbcTemplate.batchUpdate(COUNTRY_DAY_UPSERT, rows);
+    }
+
+    private static Object[] row(String key, String day, CovidCountry country) {
+        Object[] row = new Object[3 + CovidCountry.FIELDS.size()];
+        row[0] = key;
+        row[1] = day;
+        row[2] = country.getName();
+        for (int i = 0; i < CovidCountry.FIELDS.size(); i++) {
+            row[3 + i] = Double.isNaN(country.get(i)) ? null : country.get(i);
+        }
+        return row;
+    }
+
+    public Optional<CovidDaily> latest() {
+        return dailyRepository.findTopByOrderByDayDesc();
+    }
+
+    // One entry per stored day: "day" plus the requested fields (all when fields is null)
+    public List<Map<String, Object>> history(String name, String from, String to, List<Integer> fields) {
+        List<Map<String, Object>> history = new ArrayList<>();
+        for (CovidCountryDay row : countryDayRepository.findByCountryKeyAndDayBetweenOrderByDayAsc(CovidCountry.keyOf(name), from, to)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("day", row.getDay());
+            entry.putAll(row.toCountry().toMap(fields));
+            history.add(entry);
+        }
+        return history;
+    }
+}
@@ -0,0 +1,46 @@
+package com.nighthawk.spring_portfolio.mvc.execution;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/*
+Bulkhead is one endpoint group of execution.model=bulkhead: its path patterns, its bounded pool and its meters
+--- "excludes" are patterns inside "paths" that stay on Tomcat's threads, ie long uploads
+--- "threads" workers (daemon, idle ones time out) and room for "queue" waiting requests, nothing is unbounded
+--- "http.bulkhead.rejections" counts turned away requests by group and reason (full/expired),
+    "http.bulkhead.wait" times the queueing, the pool reports as "executor.*" named bulkhead-<group>
+ */
+public class Bulkhead {
+    final String name;
+    final List<String> paths;
+    final List<String> excludes;
+    final ThreadPoolExecutor executor;
+    final Counter full;
+    final Counter expired;
+    final Timer waits;
+
+    public Bulkhead(String name, List<String> paths, List<String> excludes, int threads, int queue, MeterRegistry registry) {
+        this.name = name;
+        this.paths = paths;
+        this.excludes = excludes;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue), runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "bulkhead-" + name, List.of()).bindTo(registry);
+        this.full = Counter.builder("http.bulkhead.rejections").tag("group", name).tag("reason", "full").register(registry);
+        this.expired = Counter.builder("http.bulkhead.rejections").tag("group", name).tag("reason", "expired").register(registry);
+        this.waits = Timer.builder("http.bulkhead.wait").tag("group", name).register(registry);
+    }
+}
@@ -0,0 +1,130 @@
+package com.nighthawk.spring_portfolio.mvc.execution;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.util.UrlPathHelper;
+
+/*
+BulkheadHandlerAdapter calls the controllers of each endpoint group on the group's own pool (Bulkhead)
+--- the Tomcat thread resolves the handler and its arguments, hands the call to the pool and is free again
+    (Spring MVC async processing, as for a controller returning DeferredResult); the answer is written on a short
+    async dispatch once the call returns
+--- a slow group (COVID upstream, huge light boards) fills only its own pool and queue, the others keep their threads
+--- a full queue, or a wait in it past "execution.bulkhead.max-wait-ms", is answered 503 with Retry-After at once
+--- exceptions reach the usual @ExceptionHandler advice; the async timeout (spring.mvc.async.request-timeout) bounds a call,
+    a call that may run longer (person import) belongs in the group's "exclude" patterns
+--- thread bound state (security context, request attributes) is not carried over, no controller of this application reads it
+ */
+public class BulkheadHandlerAdapter extends RequestMappingHandlerAdapter implements DisposableBean {
+    private final List<Bulkhead> bulkheads;
+    private final long maxWaitNanos;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public BulkheadHandlerAdapter(List<Bulkhead> bulkheads, Duration maxWait) {
+        this.bulkheads = bulkheads;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        return new Offloaded(handlerMethod);
+    }
+
+    // a controller method whose body runs on its group's pool, its arguments are resolved before the hand-off
+    private class Offloaded extends ServletInvocableHandlerMethod {
+        Offloaded(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer, Object... providedArgs)
+                throws Exception {
+            Bulkhead bulkhead = route(request.getNativeRequest(HttpServletRequest.class));
+            if (bulkhead == null) {
+                return super.invokeForRequest(request, mavContainer, providedArgs);
+            }
+            Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);  // the request is only readable here
+            return submit(bulkhead, () -> doInvoke(args));
+        }
+    }
+
+    private Bulkhead route(HttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        String path = urlPathHelper.getPathWithinApplication(request);
+        for (Bulkhead bulkhead : bulkheads) {
+            if (matches(bulkhead.paths, path)) {
+                return matches(bulkhead.excludes, path) ? null : bulkhead;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (matcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // DeferredResult completed by the pool, or a 503 when the group can not take the call
+    private Object submit(Bulkhead bulkhead, Callable<Object> call) {
+        DeferredResult<Object> result = new DeferredResult<>();
+        long queued = System.nanoTime();
+        try {
+            bulkhead.executor.execute(() -> {
+                long waited = System.nanoTime() - queued;
+                bulkhead.waits.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxWaitNanos) {  // the client has likely given up, do not spend the thread on it
+                    bulkhead.expired.increment();
+                    result.setResult(busy(bulkhead, "expired"));
+                    return;
+                }
+                try {
+                    result.setResult(call.call());
+                } catch (Throwable e) {  // an Error too, else the request would hang until the async timeout
+                    result.setErrorResult(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.full.increment();
+            return busy(bulkhead, "full");
+        }
+        return result;
+    }
+
+    private static ResponseEntity<Object> busy(Bulkhead bulkhead, String reason) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", bulkhead.name + " requests are " + reason + ", retry later"));
+    }
+
+    @Override
+    public void destroy() {
+        for (Bulkhead bulkhead : bulkheads) {
+            bulkhead.executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.nighthawk.spring_portfolio.mvc.execution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+* Chooses how requests are executed, "execution.model":
+* platform: Tomcat's request pool (server.tomcat.threads.max), as Spring Boot sets it up
+* virtual: Tomcat runs every request on a new virtual thread when the runtime has them (Java 21), else platform
+* bulkhead: the endpoint groups of "execution.bulkhead.groups" run on bounded pools of their own (BulkheadHandlerAdapter)
+*/
+@Configuration
+public class ExecutionConfig {
+    private static final Logger log = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    public enum Model { PLATFORM, VIRTUAL, BULKHEAD }
+
+    static Model model(String value) {
+        try {
+            return Model.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("execution.model must be platform, virtual or bulkhead, not " + value);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreads(@Value("${execution.model:platform}") String model) {
+        if (model(model) != Model.VIRTUAL) {
+            return handler -> { };
+        }
+        ExecutorService executor = virtualThreadExecutor();
+        if (executor == null) {
+            log.warn("execution.model=virtual needs Java 21 virtual threads, Java {} keeps Tomcat's request pool",
+                    System.getProperty("java.version"));
+            return handler -> { };
+        }
+        log.info("Requests run on virtual threads");
+        return handler -> handler.setExecutor(executor);
+    }
+
+    // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-virtual-", 0).factory()), null before Java 21;
+    // looked up by reflection since the application is still built for Java 17
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "http-virtual-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;  // no such methods, or preview virtual threads (Java 19/20) without --enable-preview
+        }
+    }
+
+    @Bean
+    public WebMvcRegistrations bulkheads(
+            @Value("${execution.model:platform}") String model,
+            @Value("${execution.bulkhead.groups:}") String[] groups,
+            @Value("${execution.bulkhead.max-wait-ms:2000}") long maxWaitMs,
+            Environment environment,
+            MeterRegistry registry) {
+        if (model(model) != Model.BULKHEAD) {
+            return new WebMvcRegistrations() { };  // Spring MVC's own adapter
+        }
+        List<Bulkhead> bulkheads = new ArrayList<>();
+        for (String group : groups) {
+            String name = group.trim();
+            String prefix = "execution.bulkhead." + name + ".";
+            List<String> paths = Arrays.asList(environment.getRequiredProperty(prefix + "paths").split("\\s*,\\s*"));
+            String exclude = environment.getProperty(prefix + "exclude", "").trim();
+            List<String> excludes = exclude.isEmpty() ? List.of() : Arrays.asList(exclude.split("\\s*,\\s*"));
+            int threads = environment.getProperty(prefix + "threads", Integer.class, 8);
+            int queue = environment.getProperty(prefix + "queue", Integer.class, 100);
+            bulkheads.add(new Bulkhead(name, paths, excludes, threads, queue, registry));
+            log.info("Bulkhead {}: {} but {} on {} threads, {} queued at most", name, paths, excludes, threads, queue);
+        }
+        RequestMappingHandlerAdapter adapter = new BulkheadHandlerAdapter(bulkheads, Duration.ofMillis(maxWaitMs));
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return adapter;
+            }
+        };
+    }
+}
@@ -6,11 +6,15 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.nighthawk.spring_portfolio.mvc.seed.Seedable;
+
 @Data  // Annotations to simplify writing code (ie constructors, setters)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity // Annotation to simplify creating an entity, which is a lightweight persistence domain object. Typically, an entity represents a table in a relational database, and each entity instance corresponds to a row in that table.
-public class Jokes {
+@Table(indexes = @Index(name = "ux_jokes_key_hash", columnList = "key_hash", unique = true))
+public class Jokes implements Seedable {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
@@ -21,6 +25,27 @@ public class Jokes {
     private int haha;
     private int boohoo;
 
+    // hash of the normalized joke text, finds case/whitespace duplicates by index (see Seedable)
+    @JsonIgnore
+    @Column(name = "key_hash")
+    private String keyHash;
+
+    // keyHash stays null, it is only needed on write (updateKeyHash, SeedService) and these are built per response
+    public Jokes(Long id, String joke, int haha, int boohoo) {
+        this(id, joke, haha, boohoo, null);
+    }
+
+    @Override
+    public String seedKey() {
+        return joke;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateKeyHash() {
+        keyHash = Seedable.hashOf(joke);
+    }
+
     // starting jokes
     public static String[] init() {
         final String[] jokesArray = {
@@ -1,5 +1,7 @@
 package com.nighthawk.spring_portfolio.mvc.jokes;
 
+import com.nighthawk.spring_portfolio.mvc.cache.VersionedResponseCache;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -8,6 +10,8 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Optional;
 
+import javax.servlet.http.HttpServletRequest;
+
 @RestController // annotation to simplify the creation of RESTful web services
 @RequestMapping("/api/jokes")  // all requests in file begin with this URI
 public class JokesApiController {
@@ -16,13 +20,48 @@ public class JokesApiController {
     @Autowired
     private JokesJpaRepository repository;
 
+    // Like/jeer counts live in memory and are written to the database in batches
+    @Autowired
+    private JokesVoteService votes;
+
+    // Serialized (and gzipped) joke list, rebuilt when a vote flush changes the data version
+    @Autowired
+    private VersionedResponseCache responseCache;
+
     /* GET List of Jokes
      * @GetMapping annotation is used for mapping HTTP GET requests onto specific handler methods.
      */
     @GetMapping("/")
-    public ResponseEntity<List<Jokes>> getJokes() {
-        // ResponseEntity returns List of Jokes provide by JPA findAll()
-        return new ResponseEntity<>( repository.findAll(), HttpStatus.OK);
+    public ResponseEntity<byte[]> getJokes(HttpServletRequest request) {
+        // ResponseEntity returns List of Jokes provide by JPA findAll(), with votes not yet written included,
+        // read and serialized once per data version (so at most one flush interval behind the live counts)
+        return responseCache.serveJson("jokes", votes.version(), () -> votes.withLiveCounts(repository.findAll()), request);
+    }
+
+    /* GET top n Jokes by likes or jeers, ie /api/jokes/top?n=5&by=haha
+     * served from the in-memory ranking, no database read
+     */
+    @GetMapping("/top")
+    public ResponseEntity<List<Jokes>> getTopJokes(@RequestParam(name = "n", defaultValue = "10") int n,
+                                                   @RequestParam(name = "by", defaultValue = "haha") String by) {
+        JokesRanking.By order;
+        try {
+            order = JokesRanking.byOf(by);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(votes.ranking().top(order, Math.max(n, 0)), HttpStatus.OK);
+    }
+
+    /* GET one random Joke, picked in O(1) from memory
+     */
+    @GetMapping("/random")
+    public ResponseEntity<Jokes> getRandomJoke() {
+        Optional<Jokes> optional = votes.ranking().random();
+        if (optional.isPresent()) {
+            return new ResponseEntity<>(optional.get(), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
     /* Update Like
@@ -36,12 +75,9 @@ public class JokesApiController {
         * If a value is present, isPresent() will return true
         * get() will return the value.
         */
-        Optional<Jokes> optional = repository.findById(id);
+        Optional<Jokes> optional = votes.like(id);  // counted in memory, no database write per click
         if (optional.isPresent()) {  // Good ID
-            Jokes joke = optional.get();  // value from findByID
-            joke.setHaha(joke.getHaha()+1); // increment value
-            repository.save(joke);  // save entity
-            return new ResponseEntity<>(joke, HttpStatus.OK);  // OK HTTP response: status code, headers, and body
+            return new ResponseEntity<>(optional.get(), HttpStatus.OK);  // OK HTTP response: status code, headers, and body
         }
         // Bad ID
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);  // Failed HTTP response: status code, headers, and body
@@ -51,12 +87,9 @@ public class JokesApiController {
      */
     @PutMapping("/jeer/{id}")
     public ResponseEntity<Jokes> setJeer(@PathVariable long id) {
-        Optional<Jokes> optional = repository.findById(id);
+        Optional<Jokes> optional = votes.jeer(id);
         if (optional.isPresent()) {  // Good ID
-            Jokes joke = optional.get();
-            joke.setBoohoo(joke.getBoohoo()+1);
-            repository.save(joke);
-            return new ResponseEntity<>(joke, HttpStatus.OK);
+            return new ResponseEntity<>(optional.get(), HttpStatus.OK);
         }
         // Bad ID
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
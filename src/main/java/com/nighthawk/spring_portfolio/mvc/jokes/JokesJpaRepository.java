@@ -3,11 +3,11 @@ package com.nighthawk.spring_portfolio.mvc.jokes;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 // JPA is an object-relational mapping (ORM) to persistent data, originally relational databases (SQL). Today JPA implementations has been extended for NoSQL.
+@Transactional(readOnly = true)  // declared queries are reads (SQLite reader pool), writes say @Transactional
 public interface JokesJpaRepository extends JpaRepository<Jokes, Long> {
     // JPA has many built in methods, these few have been prototyped for this application
-    void save(String Joke);
     List<Jokes> findAllByOrderByJokeAsc();
-    List<Jokes> findByJokeIgnoreCase(String joke);
 }
@@ -0,0 +1,126 @@
+package com.nighthawk.spring_portfolio.mvc.jokes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+JokesRanking orders jokes by likes and by jeers, and picks random jokes, without the database
+--- one ConcurrentSkipListSet per counter, ordered by count (highest first), ties by lower id
+--- every vote moves its joke: votes arriving while the joke is being moved are folded into that move,
+    so a viral joke costs one re-position at a time rather than one lock wait per vote
+--- random(): index into an array of all jokes, O(1); the array is replaced when a joke is added
+ */
+public class JokesRanking {
+    public enum By { HAHA, BOOHOO }
+
+    // position of one joke in one ranking
+    private static class Ranked {
+        final long count;
+        final long id;
+
+        Ranked(long count, long id) {
+            this.count = count;
+            this.id = id;
+        }
+    }
+
+    private static final Comparator<Ranked> ORDER =
+            Comparator.comparingLong((Ranked ranked) -> -ranked.count).thenComparingLong(ranked -> ranked.id);
+
+    // ranking state of one joke
+    private static class Slot {
+        final JokesVoteService.Entry entry;
+        final AtomicBoolean moving = new AtomicBoolean();
+        volatile boolean pending;
+        Ranked haha;  // guarded by moving
+        Ranked boohoo;
+
+        Slot(JokesVoteService.Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final ConcurrentSkipListSet<Ranked> byHaha = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentSkipListSet<Ranked> byBoohoo = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+    private volatile Slot[] all = new Slot[0];
+
+    public static By byOf(String name) {
+        return By.valueOf(name.trim().toUpperCase());
+    }
+
+    void add(JokesVoteService.Entry entry) {
+        Slot slot = new Slot(entry);
+        if (slots.putIfAbsent(entry.id, slot) != null) {
+            return;
+        }
+        synchronized (this) {
+            Slot[] grown = Arrays.copyOf(all, all.length + 1);
+            grown[all.length] = slot;
+            all = grown;
+        }
+        moved(entry.id);
+    }
+
+    // Called after every vote, re-positions the joke at its live counts
+    void moved(long id) {
+        Slot slot = slots.get(id);
+        if (slot == null) {
+            return;
+        }
+        slot.pending = true;
+        // whoever holds "moving" re-reads the counts until no vote arrived during its move
+        while (slot.pending && slot.moving.compareAndSet(false, true)) {
+            try {
+                slot.pending = false;
+                slot.haha = reposition(byHaha, slot.haha, new Ranked(slot.entry.haha.live(), id));
+                slot.boohoo = reposition(byBoohoo, slot.boohoo, new Ranked(slot.entry.boohoo.live(), id));
+            } finally {
+                slot.moving.set(false);
+            }
+        }
+    }
+
+    private static Ranked reposition(ConcurrentSkipListSet<Ranked> ranking, Ranked current, Ranked updated) {
+        if (current != null && current.count == updated.count) {
+            return current;
+        }
+        ranking.add(updated);  // added before removal, so a reader never misses the joke
+        if (current != null) {
+            ranking.remove(current);
+        }
+        return updated;
+    }
+
+    public List<Jokes> top(By by, int n) {
+        List<Jokes> top = new ArrayList<>(Math.min(n, slots.size()));
+        Set<Long> seen = new HashSet<>();
+        for (Ranked ranked : by == By.HAHA ? byHaha : byBoohoo) {
+            if (top.size() >= n) {
+                break;
+            }
+            if (seen.add(ranked.id)) {  // skips the old position of a joke caught mid-move
+                top.add(slots.get(ranked.id).entry.toJokes());
+            }
+        }
+        return top;
+    }
+
+    public Optional<Jokes> random() {
+        Slot[] snapshot = all;
+        if (snapshot.length == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot[ThreadLocalRandom.current().nextInt(snapshot.length)].entry.toJokes());
+    }
+}
@@ -0,0 +1,202 @@
+package com.nighthawk.spring_portfolio.mvc.jokes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+JokesVoteService counts likes and jeers in memory and writes them to SQLite in batches
+--- each joke has a LongAdder per counter, a vote is one striped add: no lock, no database round trip
+--- live value = value loaded from the database + votes counted since
+--- every "jokes.votes.flush-interval-ms" the votes not yet written go out as "haha = haha + ?" updates
+    in one transaction; totals are never reset, so votes arriving during a flush are written by the next one
+--- loadAll() reads every joke once at startup, JokesRanking then serves top/random from memory
+--- version() changes when a flush writes votes or a joke is added, cached responses of the joke list follow it
+--- votes counted but not yet written are published as "jokes.votes.pending"
+ */
+@Service
+public class JokesVoteService {
+    private static final Logger log = LoggerFactory.getLogger(JokesVoteService.class);
+
+    // counters of one joke
+    static class Counter {
+        final LongAdder votes = new LongAdder();  // votes since load
+        final long loaded;  // value read from the database
+        volatile long flushed;  // votes already written, only changed by flush()
+
+        Counter(long loaded) {
+            this.loaded = loaded;
+        }
+
+        long live() {
+            return loaded + votes.sum();
+        }
+
+        long pending() {
+            return votes.sum() - flushed;
+        }
+    }
+
+    // both counters and text of one joke
+    static class Entry {
+        final long id;
+        final String joke;
+        final Counter haha;
+        final Counter boohoo;
+
+        Entry(Jokes joke) {
+            this.id = joke.getId();
+            this.joke = joke.getJoke();
+            this.haha = new Counter(joke.getHaha());
+            this.boohoo = new Counter(joke.getBoohoo());
+        }
+
+        Jokes toJokes() {
+            return new Jokes(id, joke, (int) haha.live(), (int) boohoo.live());
+        }
+    }
+
+    private final JokesJpaRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final JokesRanking ranking = new JokesRanking();
+    private final AtomicLong version = new AtomicLong(1);
+
+    public JokesVoteService(JokesJpaRepository repository, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                            MeterRegistry registry) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        Gauge.builder("jokes.votes.pending", this, JokesVoteService::pending).register(registry);
+    }
+
+    // Votes not yet written, summed on each scrape
+    private long pending() {
+        long pending = 0;
+        for (Entry entry : entries.values()) {
+            pending += entry.haha.pending() + entry.boohoo.pending();
+        }
+        return pending;
+    }
+
+    // Reads every joke, called once the starting jokes are stored
+    public void loadAll() {
+        for (Jokes joke : repository.findAll()) {
+            add(joke);
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public JokesRanking ranking() {
+        return ranking;
+    }
+
+    // Counts one like, empty for an unknown joke
+    public Optional<Jokes> like(long id) {
+        return entry(id).map(entry -> {
+            entry.haha.votes.increment();
+            ranking.moved(id);
+            return entry.toJokes();
+        });
+    }
+
+    // Counts one jeer, empty for an unknown joke
+    public Optional<Jokes> jeer(long id) {
+        return entry(id).map(entry -> {
+            entry.boohoo.votes.increment();
+            ranking.moved(id);
+            return entry.toJokes();
+        });
+    }
+
+    // Replaces stored counts with live ones, for lists read from the database
+    public List<Jokes> withLiveCounts(List<Jokes> jokes) {
+        List<Jokes> live = new ArrayList<>(jokes.size());
+        for (Jokes joke : jokes) {
+            Entry entry = entries.get(joke.getId());
+            live.add(entry == null ? joke : entry.toJokes());
+        }
+        return live;
+    }
+
+    // A joke is read from the database once, later votes only touch memory
+    private Optional<Entry> entry(long id) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        return repository.findById(id).map(this::add);
+    }
+
+    private Entry add(Jokes joke) {
+        Entry entry = entries.computeIfAbsent(joke.getId(), key -> {
+            version.incrementAndGet();
+            return new Entry(joke);
+        });
+        ranking.add(entry);
+        return entry;
+    }
+
+    @Scheduled(fixedDelayString = "${jokes.votes.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    // Writes votes counted since the last flush, returns the number of jokes updated
+    public synchronized int flush() {
+        List<Object[]> updates = new ArrayList<>();
+        List<long[]> totals = new ArrayList<>();  // haha and boohoo totals each update covers
+        for (Entry entry : entries.values()) {
+            long haha = entry.haha.votes.sum();
+            long boohoo = entry.boohoo.votes.sum();
+            if (haha != entry.haha.flushed || boohoo != entry.boohoo.flushed) {
+                updates.add(new Object[] { haha - entry.haha.flushed, boohoo - entry.boohoo.flushed, entry.id });
+                totals.add(new long[] { haha, boohoo });
+            }
+        }
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate("UPDATE jokes SET haha = haha + ?, boohoo = boohoo + ? WHERE id = ?", updates));
+        } catch (RuntimeException e) {
+            // nothing is marked flushed, the same votes are retried next time
+            log.warn("Flushing votes of {} jokes failed", updates.size(), e);
+            return 0;
+        }
+        for (int i = 0; i < updates.size(); i++) {
+            Entry entry = entries.get((Long) updates.get(i)[2]);
+            entry.haha.flushed = totals.get(i)[0];
+            entry.boohoo.flushed = totals.get(i)[1];
+        }
+        version.incrementAndGet();
+        return updates.size();
+    }
+
+    // Votes counted before shutdown are written before the datasource closes
+    @PreDestroy
+    public void drain() {
+        flush();
+    }
+}
@@ -5,6 +5,7 @@ public class LightBoard {
 
     /* Initialize LightBoard and Lights */
     public LightBoard(int numRows, int numCols) {
+        LightBoardEvent event = beginEvent();
         this.lights = new Light[numRows][numCols];
         // 2D array nested loops, used for initialization
         for (int row = 0; row < numRows; row++) {
@@ -12,10 +13,32 @@ public class LightBoard {
                 lights[row][col] = new Light();  // each cell needs to be constructed
             }
         }
+        commitEvent(event, "create", 0);
+    }
+
+    /* JFR events (LightBoardEvent) cost nothing until a recording enables them,
+     * fields are only filled for events that are committed
+     */
+    private static LightBoardEvent beginEvent() {
+        LightBoardEvent event = new LightBoardEvent();
+        event.begin();
+        return event;
+    }
+
+    private void commitEvent(LightBoardEvent event, String operation, int chars) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.rows = lights.length;
+            event.columns = lights.length == 0 ? 0 : lights[0].length;
+            event.chars = chars;
+            event.commit();
+        }
     }
 
     /* Output is intended for API key/values */
     public String toString() { 
+        LightBoardEvent event = beginEvent();
         String outString = "[";
         // 2D array nested loops, used for reference
         for (int row = 0; row < lights.length; row++) {
@@ -31,10 +54,12 @@ public class LightBoard {
         }
         // remove last comma, newline, add square bracket, reset color
         outString = outString.substring(0,outString.length() - 1) + "]";
+        commitEvent(event, "toString", outString.length());
 		return outString;
     }
 
     public String toTerminal() { 
+        LightBoardEvent event = beginEvent();
         String outString = "[";
         for (int row = 0; row < lights.length; row++) {
             for (int col = 0; col < lights[row].length; col++) {
@@ -56,11 +81,13 @@ public class LightBoard {
             }
         }
         outString = outString.substring(0,outString.length() - 2) + "\033[m" + "]";
+        commitEvent(event, "toTerminal", outString.length());
 		return outString;
     }
 
     /* Output is intended for Terminal, draws color palette */
     public String toColorPalette() {
+        LightBoardEvent event = beginEvent();
         // block sizes
         final int ROWS = 5;
         final int COLS = 10;
@@ -107,6 +134,7 @@ public class LightBoard {
         }
         // remove last comma, newline, add square bracket, reset color
         outString += "\033[m";
+        commitEvent(event, "toColorPalette", outString.length());
 		return outString;
     }
 
@@ -121,20 +149,24 @@ public class LightBoard {
     }
 
     public void toggleAllOn() {
+        LightBoardEvent event = beginEvent();
         for (int i = 0; i < lights.length; i++) {
             for (int j = 0; j < lights[i].length; j++) {
                 lights[i][j].setOn(true);
             }
         }
+        commitEvent(event, "toggleAllOn", 0);
         System.out.println("All lights set on");
     }
 
     public void toggleAllOff() {
+        LightBoardEvent event = beginEvent();
         for (int i = 0; i < lights.length; i++) {
             for (int j = 0; j < lights[i].length; j++) {
                 lights[i][j].setOn(false);
             }
         }
+        commitEvent(event, "toggleAllOff", 0);
         System.out.println("All lights set off");
     }
 
@@ -0,0 +1,36 @@
+package com.nighthawk.spring_portfolio.mvc.lights;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+JFR event: one LightBoard operation over the whole board (create, toggle all, render)
+--- "chars" is the length of the rendered text, 0 for operations that render nothing
+--- off unless a recording enables it (see FlightRecordingService)
+ */
+@Name(LightBoardEvent.NAME)
+@Label("Light Board Operation")
+@Category({ "Spring Portfolio", "Lights" })
+@Description("Creation, bulk toggle or rendering of a light board")
+@Enabled(false)
+@StackTrace(false)
+public class LightBoardEvent extends Event {
+    public static final String NAME = "spring_portfolio.LightBoard";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int columns;
+
+    @Label("Rendered Characters")
+    int chars;
+}
@@ -0,0 +1,33 @@
+package com.nighthawk.spring_portfolio.mvc.migration;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+/*
+V2 adds jokes.key_hash to databases created before it existed
+--- SQLite has no "add column if not exists", so the column list is read first
+--- rows added without a hash get theirs from SeedService on the next start
+--- Flyway takes the version and description from the class name, Spring Boot registers the bean with Flyway
+ */
+@Component
+public class V2__Jokes_key_hash extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            boolean hasColumn = false;
+            try (ResultSet columns = statement.executeQuery("PRAGMA table_info(jokes)")) {
+                while (columns.next()) {
+                    hasColumn |= "key_hash".equals(columns.getString("name"));
+                }
+            }
+            if (!hasColumn) {
+                statement.execute("ALTER TABLE jokes ADD COLUMN key_hash varchar");
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+GoalLeaderboardService ranks people by current goal streak, goal hits this week and total steps
+--- each board is a Leaderboard (indexable skip list): top-N and a person's rank in O(log n)
+--- boards are built from the database once at startup, then adjusted by every stats write
+--- adjustments run after the write commits, so a rolled back write never reaches a board
+--- streak: consecutive goal days ending today or yesterday (today may not be logged yet), an older streak scores 0;
+    days after today are left out, the board is rescored from memory when the date changes
+ */
+@Service
+public class GoalLeaderboardService {
+
+    public enum Board { STREAK, WEEK_GOALS, STEPS }
+
+    // latest recorded day of a person and the goal streak ending on it
+    private static class Streak {
+        final String lastDate;
+        final long length;
+
+        Streak(String lastDate, long length) {
+            this.lastDate = lastDate;
+            this.length = length;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Clock clock;
+    private final Map<Board, Leaderboard> boards = new EnumMap<>(Board.class);
+    private final Map<Long, Streak> streaks = new ConcurrentHashMap<>();  // latest day up to today, streak or not
+    private volatile LocalDate week;  // start of the week WEEK_GOALS counts
+    private volatile LocalDate today;  // day STREAK was scored for
+
+    public GoalLeaderboardService() {
+        this.clock = Clock.systemDefaultZone();
+        for (Board board : Board.values()) {
+            boards.put(board, new Leaderboard());
+        }
+    }
+
+    // tests: a given database and clock
+    GoalLeaderboardService(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        for (Board board : Board.values()) {
+            boards.put(board, new Leaderboard());
+        }
+    }
+
+    // "week-goals" or "WEEK_GOALS" style names, IllegalArgumentException for unknown boards
+    public static Board boardOf(String name) {
+        return Board.valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+    public List<Leaderboard.Entry> top(Board board, int n) {
+        checkDate();
+        return boards.get(board).top(n);
+    }
+
+    public Leaderboard.Entry rank(Board board, long personId) {
+        checkDate();
+        return boards.get(board).rank(personId);
+    }
+
+    // Full rebuild, one grouped query per board
+    public synchronized void rebuild() {
+        Map<Long, Long> steps = new HashMap<>();
+        jdbcTemplate.query("SELECT person_id, sum(steps) FROM person_stat GROUP BY person_id",
+                row -> { steps.put(row.getLong(1), row.getLong(2)); });
+        boards.get(Board.STEPS).replaceAll(steps);
+
+        LocalDate now = LocalDate.now(clock);
+        rebuildWeek(PersonStatRollup.periodStart(PersonStatRollup.WEEK, now));
+
+        // rows arrive newest first per person, a person's streak ends at the first miss or gap
+        Map<Long, Streak> loaded = new HashMap<>();
+        Map<Long, String> expected = new HashMap<>();  // day that continues the streak
+        Map<Long, Boolean> broken = new HashMap<>();
+        jdbcTemplate.query("SELECT person_id, stat_date, goal_status FROM person_stat WHERE stat_date <= ? "
+                + "ORDER BY person_id, stat_date DESC", row -> {
+            long personId = row.getLong(1);
+            String date = row.getString(2);
+            boolean goal = row.getBoolean(3);
+            if (!loaded.containsKey(personId)) {
+                loaded.put(personId, new Streak(date, 0));
+            } else if (broken.containsKey(personId) || !date.equals(expected.get(personId))) {
+                broken.put(personId, true);
+                return;
+            }
+            if (!goal) {
+                broken.put(personId, true);
+                return;
+            }
+            Streak streak = loaded.get(personId);
+            loaded.put(personId, new Streak(streak.lastDate, streak.length + 1));
+            expected.put(personId, LocalDate.parse(date).minusDays(1).toString());
+        }, now.toString());
+        streaks.clear();
+        streaks.putAll(loaded);
+        rescoreStreaks(now);
+    }
+
+    // Called with the replaced day (or null) and the new day, applied once the transaction commits
+    public void apply(PersonStat previous, PersonStat current) {
+        afterCommit(() -> update(previous, current));
+    }
+
+    // Serialized with rebuild(), so a write can not land between a board's rebuild and its replacement
+    private synchronized void update(PersonStat previous, PersonStat current) {
+        long personId = current.getPersonId();
+        boards.get(Board.STEPS).add(personId, value(current.getSteps()) - (previous == null ? 0 : value(previous.getSteps())));
+
+        checkDate();
+        LocalDate date = LocalDate.parse(current.getDate());
+        if (PersonStatRollup.periodStart(PersonStatRollup.WEEK, date).equals(week)) {
+            boards.get(Board.WEEK_GOALS).add(personId, hit(current) - (previous == null ? 0 : hit(previous)));
+        }
+
+        updateStreak(personId, current.getDate(), hit(current) == 1);
+    }
+
+    public void remove(long personId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                streaks.remove(personId);
+                for (Leaderboard board : boards.values()) {
+                    board.set(personId, 0);
+                }
+            }
+        });
+    }
+
+    /* A new latest day extends or resets the streak in O(1)
+     * rewriting or backfilling an older day re-reads the person's streak from the database
+     */
+    private void updateStreak(long personId, String date, boolean goal) {
+        if (date.compareTo(today.toString()) > 0) {  // not a day of any current streak
+            return;
+        }
+        Streak streak = streaks.get(personId);
+        Streak updated;
+        if (streak == null || date.compareTo(streak.lastDate) > 0) {
+            boolean continues = streak != null && LocalDate.parse(streak.lastDate).plusDays(1).toString().equals(date);
+            updated = new Streak(date, !goal ? 0 : continues ? streak.length + 1 : 1);
+        } else {
+            updated = loadStreak(personId);
+        }
+        if (updated == null) {
+            streaks.remove(personId);
+            boards.get(Board.STREAK).set(personId, 0);
+            return;
+        }
+        streaks.put(personId, updated);
+        boards.get(Board.STREAK).set(personId, score(updated, today));
+    }
+
+    // Streak ending at the person's latest day up to today, null when there is no such day
+    private Streak loadStreak(long personId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT stat_date, goal_status FROM person_stat WHERE person_id = ? AND stat_date <= ? ORDER BY stat_date DESC",
+                personId, today.toString());
+        if (rows.isEmpty()) {
+            return null;
+        }
+        String lastDate = (String) rows.get(0).get("stat_date");
+        long length = 0;
+        String expected = lastDate;
+        for (Map<String, Object> row : rows) {
+            Object goal = row.get("goal_status");
+            if (!row.get("stat_date").equals(expected) || goal == null || ((Number) goal).intValue() == 0) {
+                break;
+            }
+            length++;
+            expected = LocalDate.parse(expected).minusDays(1).toString();
+        }
+        return new Streak(lastDate, length);
+    }
+
+    // Once the date changes STREAK is rescored, and WEEK_GOALS is rebuilt from the weekly rollups when a new week starts
+    private void checkDate() {
+        LocalDate now = LocalDate.now(clock);
+        if (!now.equals(today)) {
+            synchronized (this) {
+                if (!now.equals(today)) {
+                    rescoreStreaks(now);
+                }
+            }
+        }
+        LocalDate current = PersonStatRollup.periodStart(PersonStatRollup.WEEK, now);
+        if (!current.equals(week)) {
+            synchronized (this) {
+                if (!current.equals(week)) {
+                    rebuildWeek(current);
+                }
+            }
+        }
+    }
+
+    private void rescoreStreaks(LocalDate now) {
+        Map<Long, Long> scores = new HashMap<>();
+        streaks.forEach((personId, streak) -> scores.put(personId, score(streak, now)));
+        boards.get(Board.STREAK).replaceAll(scores);
+        today = now;
+    }
+
+    // A streak counts while its last day is today or yesterday
+    private static long score(Streak streak, LocalDate today) {
+        return LocalDate.parse(streak.lastDate).isBefore(today.minusDays(1)) ? 0 : streak.length;
+    }
+
+    private void rebuildWeek(LocalDate start) {
+        Map<Long, Long> hits = new HashMap<>();
+        jdbcTemplate.query("SELECT person_id, goal_hits FROM person_stat_rollup WHERE period = ? AND period_start = ?",
+                row -> { hits.put(row.getLong(1), row.getLong(2)); }, PersonStatRollup.WEEK, start.toString());
+        boards.get(Board.WEEK_GOALS).replaceAll(hits);
+        week = start;
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    private static int hit(PersonStat stat) {
+        return Boolean.TRUE.equals(stat.getGoalStatus()) ? 1 : 0;
+    }
+
+    private static long value(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,237 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+Leaderboard keeps people ordered by score (highest first, ties by lower id) in an indexable skip list
+--- every link stores its span (how many entries it skips), so rank is summed on the way down: O(log n)
+--- set/add/remove are O(log n), top(n) is O(log n + n)
+--- a read/write lock keeps the list, its spans and the id -> score map consistent under concurrent writers
+ */
+public class Leaderboard {
+    private static final int MAX_LEVEL = 32;
+
+    @Data
+    @NoArgsConstructor
+    public static class Entry {
+        private long rank;  // 1 is the top
+        private long personId;
+        private long score;
+        private String name;  // filled in by callers that show the board
+
+        public Entry(long rank, long personId, long score) {
+            this.rank = rank;
+            this.personId = personId;
+            this.score = score;
+        }
+    }
+
+    private static class Node {
+        final long personId;
+        final long score;
+        final Node[] next;
+        final long[] span;
+
+        Node(long personId, long score, int level) {
+            this.personId = personId;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new long[level];
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Long> scores = new HashMap<>();
+    private Node head = new Node(0, 0, MAX_LEVEL);
+    private int level = 1;
+    private long length = 0;
+
+    // Replaces the person's score, a score of 0 removes the person from the board
+    public void set(long personId, long score) {
+        lock.writeLock().lock();
+        try {
+            Long old = scores.get(personId);
+            if (old != null && old == score) {
+                return;
+            }
+            if (old != null) {
+                delete(personId, old);
+                scores.remove(personId);
+            }
+            if (score != 0) {
+                insert(personId, score);
+                scores.put(personId, score);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds delta to the person's score atomically
+    public void add(long personId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            set(personId, scores.getOrDefault(personId, 0L) + delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Swaps in a complete set of scores, readers see either the old or the new board
+    public void replaceAll(Map<Long, Long> newScores) {
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            head = new Node(0, 0, MAX_LEVEL);
+            level = 1;
+            length = 0;
+            newScores.forEach(this::set);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long score(long personId) {
+        lock.readLock().lock();
+        try {
+            return scores.getOrDefault(personId, 0L);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Entry with 1-based rank, null when the person is not on the board
+    public Entry rank(long personId) {
+        lock.readLock().lock();
+        try {
+            Long score = scores.get(personId);
+            if (score == null) {
+                return null;
+            }
+            long rank = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && !precedes(personId, score, x.next[i].personId, x.next[i].score)) {
+                    rank += x.span[i];
+                    x = x.next[i];
+                }
+                if (x != head && x.personId == personId) {
+                    return new Entry(rank, personId, score);
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Entry> top(int n) {
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = new ArrayList<>(Math.min(n, (int) Math.min(length, Integer.MAX_VALUE)));
+            Node x = head.next[0];
+            while (x != null && entries.size() < n) {
+                entries.add(new Entry(entries.size() + 1, x.personId, x.score));
+                x = x.next[0];
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // True when entry a sorts strictly before entry b
+    private static boolean precedes(long aId, long aScore, long bId, long bScore) {
+        return aScore > bScore || (aScore == bScore && aId < bId);
+    }
+
+    private void insert(long personId, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        long[] rank = new long[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && precedes(x.next[i].personId, x.next[i].score, personId, score)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = length;
+            }
+            level = nodeLevel;
+        }
+        Node node = new Node(personId, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+    }
+
+    private void delete(long personId, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && precedes(x.next[i].personId, x.next[i].score, personId, score)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        x = x.next[0];
+        if (x == null || x.personId != personId) {
+            return;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    // Level n with probability 1/4^(n-1), as in Redis sorted sets
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        while (nodeLevel < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+}
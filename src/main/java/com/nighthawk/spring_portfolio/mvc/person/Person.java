@@ -12,17 +12,18 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 
-import org.hibernate.annotations.Type;
-import org.hibernate.annotations.TypeDef;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.format.annotation.DateTimeFormat;
 
-import com.vladmihalcea.hibernate.type.json.JsonType;
-
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -39,12 +40,23 @@ The last annotation connect to database
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@TypeDef(name="json", typeClass = JsonType.class)
+@Table(indexes = {
+    @Index(name = "ix_person_name_id", columnList = "name, id"),  // keyset paging order
+    @Index(name = "ux_person_email", columnList = "email", unique = true)  // login and import lookups
+})
 public class Person {
     
-    // automatic unique identifier for Person record
+    /* automatic unique identifier for Person record
+       ids come from the shared "hibernate_sequence" table in blocks of 1000 (pooled-lo),
+       so one sequence update serves many inserts and JDBC insert batching stays enabled
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_id")
+    @GenericGenerator(name = "person_id", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+        @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+        @Parameter(name = "increment_size", value = "1000"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     // email, password, roles are key attributes to login and authentication
@@ -71,16 +83,16 @@ public class Person {
     @Positive
     private Integer goalStep;
 
-    /* HashMap is used to store JSON for daily "stats"
+    /* HashMap is used to present daily "stats" as JSON
     "stats": {
         "2022-11-13": {
             "calories": 2200,
             "steps": 8000
         }
     }
+    Rows live in the "person_stat" table (see PersonStat), this map is filled by PersonStatService on demand
     */
-    @Type(type="json")
-    @Column(columnDefinition = "jsonb")
+    @Transient
     private Map<String,Map<String, Object>> stats = new HashMap<>(); 
     
 
@@ -96,8 +108,13 @@ public class Person {
 
     // A custom getter to return age from dob attribute
     public int getAge() {
-        if (this.dob != null) {
-            LocalDate birthDay = this.dob.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return ageOf(this.dob);
+    }
+
+    // Shared with PersonSummary, -1 when dob is unknown
+    public static int ageOf(Date dob) {
+        if (dob != null) {
+            LocalDate birthDay = dob.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
             return Period.between(birthDay, LocalDate.now()).getYears(); }
         return -1;
     }
@@ -1,6 +1,8 @@
 package com.nighthawk.spring_portfolio.mvc.person;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -8,6 +10,14 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.nighthawk.spring_portfolio.mvc.sqlite.SqliteWriteQueue;
 
 @RestController
 @RequestMapping("/api/person")
@@ -21,12 +31,66 @@ public class PersonApiController {
     @Autowired
     private PersonJpaRepository repository;
 
+    // findById, save and deleteById go through the read-through cache
+    @Autowired
+    private PersonCache personCache;
+
+    @Autowired
+    private PersonStatService statService;
+
+    @Autowired
+    private PersonStatRollupService rollupService;
+
+    @Autowired
+    private PersonSearchService searchService;
+
+    @Autowired
+    private PersonImportService importService;
+
+    @Autowired
+    private PersonStatIngestService ingestService;
+
+    @Autowired
+    private GoalLeaderboardService leaderboardService;
+
+    // concurrent setStats writes share one SQLite commit
+    @Autowired
+    private SqliteWriteQueue writeQueue;
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
     /*
-    GET List of People
+    GET List of People, one page at a time ordered by name
+    Body is a list of summaries (no password or stats), the next page is in the "Link" header:
+    </api/person/?after=<cursor>&size=50>; rel="next"
      */
     @GetMapping("/")
-    public ResponseEntity<List<Person>> getPeople() {
-        return new ResponseEntity<>( repository.findAllByOrderByNameAsc(), HttpStatus.OK);
+    public ResponseEntity<List<PersonSummary>> getPeople(@RequestParam(name = "after", required = false) String after,
+                                                         @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        if (size < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        PageRequest page = PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE));
+
+        List<PersonSummary> people;
+        if (after == null) {
+            people = repository.findFirstPage(page);
+        } else {
+            // cursor is "id:name" of the last row already seen
+            String[] key = decodeCursor(after);
+            if (key == null) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            people = repository.findPageAfter(key[1], Long.parseLong(key[0]), page);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (people.size() == page.getPageSize()) {  // a full page may have more after it
+            PersonSummary last = people.get(people.size() - 1);
+            headers.add(HttpHeaders.LINK, "</api/person/?after=" + encodeCursor(last) + "&size=" + page.getPageSize() + ">; rel=\"next\"");
+        }
+        return new ResponseEntity<>(people, headers, HttpStatus.OK);
     }
 
     /*
@@ -34,24 +98,97 @@ public class PersonApiController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<Person> getPerson(@PathVariable long id) {
-        Optional<Person> optional = repository.findById(id);
+        Optional<Person> optional = personCache.findById(id);
         if (optional.isPresent()) {  // Good ID
             Person person = optional.get();  // value from findByID
+            person.setStats(statService.history(id));  // full stats history only for the individual Person
             return new ResponseEntity<>(person, HttpStatus.OK);  // OK HTTP response: status code, headers, and body
         }
         // Bad ID
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);       
     }
 
+    /*
+    GET stats for a Person between two dates (inclusive, yyyy-MM-dd), only rows in range are read
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getPersonStats(@PathVariable long id,
+                                                                           @RequestParam("from") String from,
+                                                                           @RequestParam("to") String to) {
+        if (!isDate(from) || !isDate(to) || personCache.findById(id).isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(statService.range(id, from, to), HttpStatus.OK);
+    }
+
+    /*
+    GET weekly or monthly rollups (sum, avg, max, goal hits) for periods overlapping from..to
+     */
+    @GetMapping("/{id}/rollup")
+    public ResponseEntity<List<PersonStatRollup>> getPersonRollup(@PathVariable long id,
+                                                                  @RequestParam(name = "period", defaultValue = PersonStatRollup.WEEK) String period,
+                                                                  @RequestParam("from") String from,
+                                                                  @RequestParam("to") String to) {
+        boolean goodPeriod = period.equals(PersonStatRollup.WEEK) || period.equals(PersonStatRollup.MONTH);
+        if (!goodPeriod || !isDate(from) || !isDate(to) || personCache.findById(id).isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(rollupService.rollups(id, period, LocalDate.parse(from), LocalDate.parse(to)), HttpStatus.OK);
+    }
+
+    /*
+    GET top people of a leaderboard: board=streak|week-goals|steps, ie /api/person/leaderboard?board=streak&n=10
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<List<Leaderboard.Entry>> getLeaderboard(@RequestParam(name = "board", defaultValue = "streak") String board,
+                                                                  @RequestParam(name = "n", defaultValue = "10") int n) {
+        GoalLeaderboardService.Board which;
+        try {
+            which = GoalLeaderboardService.boardOf(board);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<Leaderboard.Entry> entries = leaderboardService.top(which, Math.min(Math.max(n, 0), MAX_PAGE_SIZE));
+        for (Leaderboard.Entry entry : entries) {
+            personCache.findById(entry.getPersonId()).ifPresent(person -> entry.setName(person.getName()));
+        }
+        return new ResponseEntity<>(entries, HttpStatus.OK);
+    }
+
+    /*
+    GET a person's rank and score on a leaderboard, 404 when the person has no score on it
+     */
+    @GetMapping("/{id}/rank")
+    public ResponseEntity<Leaderboard.Entry> getPersonRank(@PathVariable long id,
+                                                           @RequestParam(name = "board", defaultValue = "streak") String board) {
+        GoalLeaderboardService.Board which;
+        try {
+            which = GoalLeaderboardService.boardOf(board);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Optional<Person> person = personCache.findById(id);
+        if (person.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Leaderboard.Entry entry = leaderboardService.rank(which, id);
+        if (entry == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        entry.setName(person.get().getName());
+        return new ResponseEntity<>(entry, HttpStatus.OK);
+    }
+
     /*
     DELETE individual Person using ID
      */
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<Person> deletePerson(@PathVariable long id) {
-        Optional<Person> optional = repository.findById(id);
+        Optional<Person> optional = personCache.findById(id);
         if (optional.isPresent()) {  // Good ID
             Person person = optional.get();  // value from findByID
-            repository.deleteById(id);  // value from findByID
+            statService.deleteAll(id);  // daily stats rows belong to the person
+            personCache.deleteById(id);  // delete and evict from cache
             return new ResponseEntity<>(person, HttpStatus.OK);  // OK HTTP response: status code, headers, and body
         }
         // Bad ID
@@ -75,36 +212,72 @@ public class PersonApiController {
         }
         // A person object WITHOUT ID will create a new record with default roles as student
         Person person = new Person(email, password, name, dob, bmi);
-        repository.save(person);
+        personCache.save(person);
         return new ResponseEntity<>(email +" is created successfully", HttpStatus.CREATED);
     }
 
     /*
-    The personSearch API looks across database for partial match to term (k,v) passed by RequestEntity body
+    POST bulk import, body is streamed as CSV (Content-Type: text/csv, header row email,password,name,dob,bmi)
+    or NDJSON (Content-Type: application/x-ndjson, one {"email":..,"password":..,"name":..,"dob":"MM-dd-yyyy","bmi":..} per line)
+    Response counts imported and rejected rows, with the first rejected rows and reasons by line number
+     */
+    @PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<PersonImportService.Result> importPeople(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                                   InputStream body) throws IOException {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        return new ResponseEntity<>(importService.importPeople(body, csv), HttpStatus.OK);
+    }
+
+    /*
+    The personSearch API looks across database for names or emails containing each word of term (k,v) passed by RequestEntity body
+    Optional "limit" caps results at 500, best matches first; a limit below 1 or not a number is 400
      */
     @PostMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Object> personSearch(@RequestBody final Map<String,String> map) {
         // extract term from RequestEntity
         String term = (String) map.get("term");
+        int limit;
+        try {
+            limit = map.containsKey("limit") ? Integer.parseInt(map.get("limit")) : 50;
+        } catch (NumberFormatException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (limit < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
-        // JPA query to filter on term
-        List<Person> list = repository.findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(term, term);
+        // FTS5 index lookup, ranked summaries
+        List<PersonSummary> list = searchService.search(term, limit);
 
         // return resulting list and status, error checking should be added
         return new ResponseEntity<>(list, HttpStatus.OK);
     }
 
     /*
-    The personStats API adds stats by Date to Person table 
+    GET type-ahead suggestions (id, name, email) for a prefix, ie /api/person/autocomplete?prefix=jun
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<PersonSuggestion>> personAutocomplete(@RequestParam("prefix") String prefix,
+                                                                     @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (limit < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(searchService.autocomplete(prefix, limit), HttpStatus.OK);
+    }
+
+    /*
+    The personStats API adds stats by Date to the person_stat table, replacing the day if it exists
+    Response is the Person with "stats" holding the day that was written, a date after today is 400,
+    as are steps/calories that are not whole numbers and a goalStatus that is not true/false
     */
     @PostMapping(value = "/setStats", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Person> personStats(@RequestBody final Map<String,Object> stat_map) {
+    public ResponseEntity<Person> personStats(@RequestBody final Map<String,Object> stat_map) throws JsonProcessingException {
         // find ID
         long id=Long.parseLong((String)stat_map.get("id"));  
-        Optional<Person> optional = repository.findById((id));
-        if (optional.isPresent()) {  // Good ID
+        String date = (String) stat_map.get("date");
+        Optional<Person> optional = personCache.findById((id));
+        if (optional.isPresent() && isStatDate(date)) {  // Good ID and date
             Person person = optional.get();  // value from findByID
-            int step = (int)stat_map.get("steps");
 
             // Extract Attributes from JSON
             Map<String, Object> attributeMap = new HashMap<>();
@@ -113,33 +286,114 @@ public class PersonApiController {
                 if (!entry.getKey().equals("date") && !entry.getKey().equals("id"))
                     attributeMap.put(entry.getKey(), entry.getValue());
             }
-            attributeMap.put("goalStatus: ", step>person.getGoalStep());
 
-            // Set Date and Attributes to SQL HashMap
-            Map<String, Map<String, Object>> date_map = new HashMap<>();
-            date_map.putAll(person.getStats());
-            date_map.put( (String) stat_map.get("date"), attributeMap );
-            person.setStats(date_map);  // BUG, needs to be customized to replace if existing or append if new
-            repository.save(person);  // conclude by writing the stats updates
+            // steps/calories/goalStatus that do not convert are 400, checked before queuing so they never fail a group commit
+            try {
+                PersonStat.normalize(attributeMap);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+
+            // Upsert a single (person, date) row, cost does not grow with history; committed with other queued writes
+            PersonStat stat = writeQueue.execute(() -> statService.record(person, date, attributeMap));
 
             // return Person with update Stats
+            person.setStats(PersonStatService.toStatsMap(List.of(stat)));
             return new ResponseEntity<>(person, HttpStatus.OK);
         }
         // return Bad ID
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST); 
         
     }
+    /*
+    The personIngestStats API buffers a burst of device stats and answers at once (202 Accepted)
+    Body is a list of setStats objects: [{"id": "1", "date": "2022-11-13", "steps": 8000}, ...]
+    Days are merged into the stored ones in the background, updates to the same person/date are merged first
+    An entry without id or date, or with steps/calories/goalStatus that do not convert, is 400 for the whole request
+    */
+    @PostMapping(value = "/ingestStats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> personIngestStats(@RequestBody final List<Map<String,Object>> stat_maps) {
+        // check every entry first, a bad one is 400 and nothing of the request is buffered
+        List<Long> ids = new ArrayList<>();
+        List<Map<String, Object>> attributeMaps = new ArrayList<>();
+        for (int i = 0; i < stat_maps.size(); i++) {
+            Map<String, Object> stat_map = stat_maps.get(i);
+            String date = stat_map.get("date") instanceof String ? (String) stat_map.get("date") : null;
+            Long id;
+            try {
+                id = stat_map.get("id") == null ? null : Long.valueOf(stat_map.get("id").toString());
+            } catch (NumberFormatException e) {
+                id = null;
+            }
+            if (id == null || !isStatDate(date)) {
+                return new ResponseEntity<>(Map.of("error", "entry " + i + " needs id and date (yyyy-MM-dd, not after today)"), HttpStatus.BAD_REQUEST);
+            }
+            Map<String, Object> attributeMap = new HashMap<>(stat_map);
+            attributeMap.remove("id");
+            attributeMap.remove("date");
+            try {
+                PersonStat.normalize(attributeMap);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(Map.of("error", "entry " + i + ": " + e.getMessage()), HttpStatus.BAD_REQUEST);
+            }
+            ids.add(id);
+            attributeMaps.add(attributeMap);
+        }
+
+        int accepted = 0;
+        List<Integer> dropped = new ArrayList<>();  // positions in the request that were not buffered
+        for (int i = 0; i < stat_maps.size(); i++) {
+            if (ingestService.accept(ids.get(i), (String) stat_maps.get(i).get("date"), attributeMaps.get(i))) {
+                accepted++;
+            } else {
+                dropped.add(i);
+            }
+        }
+        HttpStatus status = dropped.isEmpty() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;  // full buffer, retry later
+        return new ResponseEntity<>(Map.of("accepted", accepted, "dropped", dropped), status);
+    }
+
     @PostMapping(value = "/setGoal", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Person> personGoal(@RequestBody final Map<String,Object> goal_map) {
         long id=Long.parseLong((String)goal_map.get("id"));
-        Optional<Person> optional = repository.findById((id));
+        Optional<Person> optional = personCache.findById((id));
         if (optional.isPresent()) {
             Person person = optional.get();
             person.setGoalStep((Integer)goal_map.get("goal"));
-            repository.save(person);
+            personCache.save(person);
             return new ResponseEntity<>(person, HttpStatus.OK);
         }
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST); 
 
     }
+
+    private static String encodeCursor(PersonSummary last) {
+        String key = last.getId() + ":" + last.getName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 2);
+            Long.parseLong(key[0]);
+            return key.length == 2 ? key : null;
+        } catch (IllegalArgumentException e) {  // includes NumberFormatException
+            return null;
+        }
+    }
+
+    // stats dates must be ISO (yyyy-MM-dd) so that range queries sort chronologically
+    private static boolean isDate(String date) {
+        try {
+            LocalDate.parse(date);
+            return true;
+        } catch (DateTimeParseException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    // A day that can have stats: a date, not after today
+    private static boolean isStatDate(String date) {
+        return isDate(date) && !LocalDate.parse(date).isAfter(LocalDate.now());
+    }
 }
@@ -0,0 +1,82 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+PersonCache is a read-through cache in front of PersonJpaRepository for findById
+--- entries are bounded by size and expire after a TTL, writes through save/deleteById invalidate them
+--- callers receive copies, so a controller changing its Person can not change the cached one
+--- "person.cache.enabled=false" turns it into a plain pass-through for comparison
+--- hit/miss/eviction counts and hit ratio are published as "cache.*" metrics tagged cache=person.*
+ */
+@Component
+public class PersonCache {
+    private final PersonJpaRepository repository;
+    private final boolean enabled;
+    private final Cache<Long, Person> byId;
+
+    public PersonCache(PersonJpaRepository repository, MeterRegistry registry,
+                       @Value("${person.cache.enabled:true}") boolean enabled,
+                       @Value("${person.cache.max-size:10000}") long maxSize,
+                       @Value("${person.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, byId, "person.byId");
+        Gauge.builder("cache.hit.ratio", byId, cache -> cache.stats().hitRate()).tag("cache", "person.byId").register(registry);
+    }
+
+    public Optional<Person> findById(long id) {
+        if (!enabled) {
+            return repository.findById(id);
+        }
+        // misses are not stored, so an unknown id always reaches the database
+        Person person = byId.get(id, key -> repository.findById(key).orElse(null));
+        return Optional.ofNullable(person).map(PersonCache::copyOf);
+    }
+
+    // Write through to the database, the next read loads the saved state
+    public Person save(Person person) {
+        Person saved = repository.save(person);
+        evict(saved.getId());
+        return saved;
+    }
+
+    public void deleteById(long id) {
+        repository.deleteById(id);
+        evict(id);
+    }
+
+    public void evict(Long id) {
+        if (id != null) {
+            byId.invalidate(id);  // waits for a load of the same id in progress, so a stale load is not left behind
+        }
+    }
+
+    public void evictAll() {
+        byId.invalidateAll();
+    }
+
+    private static Person copyOf(Person person) {
+        Date dob = person.getDob() == null ? null : new Date(person.getDob().getTime());
+        return new Person(person.getId(), person.getEmail(), person.getPassword(), person.getName(),
+                dob, person.getBmi(), person.getGoalStep(), new HashMap<>());
+    }
+}
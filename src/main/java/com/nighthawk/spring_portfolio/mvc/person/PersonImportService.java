@@ -0,0 +1,260 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/*
+PersonImportService streams people from CSV or NDJSON into the person table
+--- the body is read line by line, memory use does not depend on file size
+--- rows are validated with the Person constraints, bad rows are reported by line number and skipped
+--- valid rows are inserted CHUNK_SIZE at a time, one transaction and one JDBC batch per chunk
+--- duplicate emails (already stored, or repeated within a chunk) are rejected per row
+ */
+@Service
+public class PersonImportService {
+    // rows per transaction; emails are checked EMAIL_CHECK_SIZE at a time, under the 999 bound variables older SQLite builds allow
+    public static final int CHUNK_SIZE = 5000;
+    public static final int EMAIL_CHECK_SIZE = 500;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    public static final String[] CSV_COLUMNS = { "email", "password", "name", "dob", "bmi" };
+
+    @Autowired
+    private PersonJpaRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String error;
+    }
+
+    @Data
+    public static class Result {
+        private long imported;
+        private long rejected;
+        private List<RowError> errors = new ArrayList<>();
+
+        void reject(long line, String error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, error));
+            }
+        }
+    }
+
+    // csv: header row with email,password,name,dob,bmi (any order); ndjson: one JSON object per line
+    public Result importPeople(InputStream body, boolean csv) throws IOException {
+        Result result = new Result();
+        SimpleDateFormat dobFormat = new SimpleDateFormat("MM-dd-yyyy");  // same format as POST /api/person/post
+        dobFormat.setLenient(false);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String[] header = null;
+        List<Person> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Long> chunkLines = new ArrayList<>(CHUNK_SIZE);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, String> fields;
+            try {
+                if (csv && header == null) {
+                    header = splitCsv(line).toArray(new String[0]);
+                    continue;
+                }
+                fields = csv ? toFields(header, splitCsv(line)) : parseJson(line);
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                result.reject(lineNumber, "malformed row: " + e.getMessage());
+                continue;
+            }
+
+            Person person;
+            try {
+                person = toValidPerson(fields, dobFormat);
+            } catch (IllegalArgumentException e) {
+                result.reject(lineNumber, e.getMessage());
+                continue;
+            }
+            chunk.add(person);
+            chunkLines.add(lineNumber);
+            if (chunk.size() == CHUNK_SIZE) {
+                insertChunk(chunk, chunkLines, result);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, chunkLines, result);
+        }
+        return result;
+    }
+
+    private void insertChunk(List<Person> chunk, List<Long> chunkLines, Result result) {
+        /* emails are checked before the write transaction: the id generator updates hibernate_sequence
+           on its own connection, which SQLite only allows while this transaction holds no lock */
+        Set<String> taken = new HashSet<>();
+        for (int from = 0; from < chunk.size(); from += EMAIL_CHECK_SIZE) {
+            List<Person> slice = chunk.subList(from, Math.min(from + EMAIL_CHECK_SIZE, chunk.size()));
+            taken.addAll(repository.findExistingEmails(slice.stream().map(Person::getEmail).toList()));
+        }
+        List<Person> fresh = new ArrayList<>(chunk.size());
+        List<Long> freshLines = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (taken.add(chunk.get(i).getEmail())) {
+                fresh.add(chunk.get(i));
+                freshLines.add(chunkLines.get(i));
+            } else {
+                result.reject(chunkLines.get(i), chunk.get(i).getEmail() + " already exists");
+            }
+        }
+
+        try {
+            persist(fresh);
+            result.imported += fresh.size();
+        } catch (PersistenceException | DataAccessException e) {
+            // another writer took an email since the check, retry this chunk row by row to find it
+            for (int i = 0; i < fresh.size(); i++) {
+                Person person = fresh.get(i);
+                person.setId(null);
+                try {
+                    persist(List.of(person));
+                    result.imported++;
+                } catch (PersistenceException | DataAccessException rowError) {
+                    result.reject(freshLines.get(i), person.getEmail() + " could not be saved");
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    // One transaction, inserts go out as JDBC batches on flush and are then dropped from the persistence context
+    private void persist(List<Person> people) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Person person : people) {
+                entityManager.persist(person);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    // Builds a Person from one row, IllegalArgumentException carries the reason a row is rejected
+    private Person toValidPerson(Map<String, String> fields, SimpleDateFormat dobFormat) {
+        for (String column : CSV_COLUMNS) {
+            if (fields.get(column) == null || fields.get(column).isBlank()) {
+                throw new IllegalArgumentException(column + " is required");
+            }
+        }
+        Date dob;
+        try {
+            dob = dobFormat.parse(fields.get("dob").trim());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("dob " + fields.get("dob") + " error; try MM-dd-yyyy");
+        }
+        Integer bmi;
+        try {
+            bmi = Integer.valueOf(fields.get("bmi").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bmi " + fields.get("bmi") + " is not a number");
+        }
+        Person person = new Person(fields.get("email").trim(), fields.get("password"), fields.get("name").trim(), dob, bmi);
+        for (ConstraintViolation<Person> violation : validator.validate(person)) {
+            throw new IllegalArgumentException(violation.getPropertyPath() + " " + violation.getMessage());
+        }
+        return person;
+    }
+
+    private Map<String, String> parseJson(String line) throws JsonProcessingException {
+        Map<String, Object> json = mapper.readValue(line, new TypeReference<Map<String, Object>>() {});
+        Map<String, String> fields = new HashMap<>();
+        json.forEach((key, value) -> fields.put(key, value == null ? null : value.toString()));
+        return fields;
+    }
+
+    private static Map<String, String> toFields(String[] header, List<String> values) {
+        if (values.size() != header.length) {
+            throw new IllegalArgumentException("expected " + header.length + " columns, found " + values.size());
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            fields.put(header[i].trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    // Splits one CSV line, fields may be "quoted" and "" is an escaped quote
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
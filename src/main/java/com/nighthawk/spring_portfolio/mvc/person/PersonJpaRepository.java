@@ -1,8 +1,12 @@
 package com.nighthawk.spring_portfolio.mvc.person;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /*
@@ -11,11 +15,31 @@ Extends the JpaRepository interface from Spring Data JPA.
 -- JpaRepository defines standard CRUD methods
 -- Via JPA the developer can retrieve database from relational databases to Java objects and vice versa.
  */
+@Transactional(readOnly = true)  // declared queries are reads (SQLite reader pool), writes say @Transactional
 public interface PersonJpaRepository extends JpaRepository<Person, Long> {
     Person findByEmail(String email);
 
     List<Person> findAllByOrderByNameAsc();
 
+    // Which of these emails are already taken, used by bulk import (ux_person_email index)
+    @Query("SELECT p.email FROM Person p WHERE p.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /* Keyset (seek) paging on (name, id), served by the ix_person_name_id index
+       Each page starts after the last row of the previous page, so deep pages cost the same as the first
+     */
+    @Query("SELECT p.id AS id, p.email AS email, p.name AS name, p.dob AS dob, p.bmi AS bmi, p.goalStep AS goalStep " +
+           "FROM Person p ORDER BY p.name ASC, p.id ASC")
+    List<PersonSummary> findFirstPage(Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.email AS email, p.name AS name, p.dob AS dob, p.bmi AS bmi, p.goalStep AS goalStep " +
+           "FROM Person p WHERE p.name >= :name AND (p.name > :name OR p.id > :id) ORDER BY p.name ASC, p.id ASC")
+    List<PersonSummary> findPageAfter(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.email AS email, p.name AS name, p.dob AS dob, p.bmi AS bmi, p.goalStep AS goalStep " +
+           "FROM Person p WHERE p.id IN :ids")
+    List<PersonSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
     // JPA query, findBy does JPA magic with "Name", "Containing", "Or", "Email", "IgnoreCase"
     List<Person> findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(String name, String email);
     /* Custom JPA query articles, there are articles that show custom SQL as well
@@ -31,4 +55,24 @@ public interface PersonJpaRepository extends JpaRepository<Person, Long> {
     /*
         https://www.baeldung.com/spring-data-jpa-query
      */
+
+    // Full text search on the FTS5 "person_search" index (see PersonSearchService), rank is bm25 with name weighted over email
+    @Query(
+            value = "SELECT rowid FROM person_search " +
+                    "WHERE person_search MATCH ?1 ORDER BY rank LIMIT ?2",
+            nativeQuery = true)
+    List<Number> searchRankedIds(String match, int limit);
+
+    // Substring search on the trigram FTS5 "person_search_trigram" index, same ranking
+    @Query(
+            value = "SELECT rowid FROM person_search_trigram " +
+                    "WHERE person_search_trigram MATCH ?1 ORDER BY rank LIMIT ?2",
+            nativeQuery = true)
+    List<Number> searchRankedIdsBySubstring(String match, int limit);
+
+    @Query(
+            value = "SELECT p.id AS id, p.name AS name, p.email AS email FROM person_search JOIN person p ON p.id = person_search.rowid " +
+                    "WHERE person_search MATCH ?1 ORDER BY rank LIMIT ?2",
+            nativeQuery = true)
+    List<PersonSuggestion> autocomplete(String match, int limit);
 }
\ No newline at end of file
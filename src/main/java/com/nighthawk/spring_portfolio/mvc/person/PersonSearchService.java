@@ -0,0 +1,107 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/*
+PersonSearchService answers name/email search from SQLite FTS5 indexes instead of LIKE '%term%' scans
+--- "person_search" and "person_search_trigram" are external content FTS5 tables over person(name, email), no data is duplicated
+--- the tables and the triggers on person that keep them in step come from migration V4__person_search.sql
+--- search: substrings, as LIKE '%term%' did ("son" finds "Johnson"), from the trigram index;
+    a trigram index can not match fewer than 3 characters, so a term with a shorter word falls back to word prefixes
+--- autocomplete: word prefixes; prefix='2 3' stores 2 and 3 character prefixes, so short input stays an index lookup
+--- results are ranked by bm25, with name matches weighted above email matches
+ */
+@Service
+public class PersonSearchService {
+    public static final int MAX_RESULTS = 500;
+
+    @Autowired
+    private PersonJpaRepository repository;
+
+    // Ranked people whose name or email contains every word of term
+    public List<PersonSummary> search(String term, int limit) {
+        String substrings = toSubstringQuery(term);
+        String match = substrings != null ? substrings : toMatchQuery(term);
+        if (match.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // rank ids in the index, then read summaries by primary key and restore rank order
+        Map<Long, Integer> rank = new HashMap<>();
+        List<Number> ids = substrings != null
+                ? repository.searchRankedIdsBySubstring(match, cap(limit))
+                : repository.searchRankedIds(match, cap(limit));
+        for (Number id : ids) {
+            rank.put(id.longValue(), rank.size());
+        }
+        if (rank.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<PersonSummary> people = new ArrayList<>(repository.findSummariesByIdIn(rank.keySet()));
+        people.sort(Comparator.comparing(person -> rank.get(person.getId())));
+        return people;
+    }
+
+    // Lightweight id/name/email suggestions for type-ahead
+    public List<PersonSuggestion> autocomplete(String prefix, int limit) {
+        String match = toMatchQuery(prefix);
+        if (match.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return repository.autocomplete(match, cap(limit));
+    }
+
+    // 1..MAX_RESULTS, SQLite reads a negative LIMIT as no limit at all
+    private static int cap(int limit) {
+        return Math.max(1, Math.min(limit, MAX_RESULTS));
+    }
+
+    /* Turns free text into a trigram FTS5 query of quoted strings, one per whitespace separated word
+     * "son @mail" becomes "son" "@mail" (implicit AND, case-insensitive), quotes are doubled so nothing is FTS syntax;
+     * null when a word is shorter than 3 characters, which the trigram index can not match
+     */
+    static String toSubstringQuery(String term) {
+        StringBuilder match = new StringBuilder();
+        if (term == null) {
+            return "";
+        }
+        for (String word : term.trim().split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (word.codePointCount(0, word.length()) < 3) {
+                return null;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(word.replace("\"", "\"\"")).append('"');
+        }
+        return match.toString();
+    }
+
+    /* Turns free text into an FTS5 query of quoted prefix terms
+     * "Jun Lim" becomes "jun"* "lim"* (implicit AND), punctuation can not inject FTS syntax
+     */
+    static String toMatchQuery(String term) {
+        StringBuilder match = new StringBuilder();
+        if (term == null) {
+            return "";
+        }
+        for (String word : term.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append('"').append(word).append("\"*");
+            }
+        }
+        return match.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Type;
+import org.hibernate.annotations.TypeDef;
+
+import com.vladmihalcea.hibernate.type.json.JsonType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+PersonStat is one day of activity for one Person, a row in the "person_stat" time-series table.
+--- (person_id, stat_date) is unique, so a day is written with a single upsert
+--- stat_date is kept as "yyyy-MM-dd" text, which sorts chronologically for range queries
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "person_stat",
+       indexes = @Index(name = "ux_person_stat_person_date", columnList = "person_id, stat_date", unique = true))
+@TypeDef(name="json", typeClass = JsonType.class)
+public class PersonStat {
+    // key used by the original JSON "stats" column, kept so API output is unchanged
+    public static final String GOAL_STATUS = "goalStatus: ";
+
+    // automatic unique identifier, INTEGER PRIMARY KEY is SQLite's rowid (declared so schema validation expects "integer")
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "integer")
+    private Long id;
+
+    @Column(name = "person_id", nullable = false)
+    private Long personId;
+
+    @Column(name = "stat_date", nullable = false)
+    private String date;
+
+    private Integer steps;
+
+    private Integer calories;
+
+    private Boolean goalStatus;
+
+    // any other attributes posted with the day, ie "heartRate"
+    @Type(type="json")
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Object> extra = new HashMap<>();
+
+    /* Splits a posted per-day map into known columns and extra attributes
+     * IllegalArgumentException when steps/calories are not whole numbers or goal status is not a boolean
+     */
+    public static PersonStat fromAttributes(Long personId, String date, Map<String, Object> attributes) {
+        PersonStat stat = new PersonStat();
+        stat.setPersonId(personId);
+        stat.setDate(date);
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            switch (entry.getKey()) {
+                case "steps":
+                    stat.setSteps(toInteger(entry.getKey(), entry.getValue()));
+                    break;
+                case "calories":
+                    stat.setCalories(toInteger(entry.getKey(), entry.getValue()));
+                    break;
+                case GOAL_STATUS:
+                case "goalStatus":
+                    if (entry.getValue() != null && !(entry.getValue() instanceof Boolean)) {
+                        throw new IllegalArgumentException("goalStatus must be true or false, not " + entry.getValue());
+                    }
+                    stat.setGoalStatus((Boolean) entry.getValue());
+                    break;
+                default:
+                    stat.getExtra().put(entry.getKey(), entry.getValue());
+            }
+        }
+        return stat;
+    }
+
+    // The posted per-day map with its known columns converted, null values left out; throws as fromAttributes does
+    public static Map<String, Object> normalize(Map<String, Object> attributes) {
+        return fromAttributes(null, null, attributes).toAttributes();
+    }
+
+    private static Integer toInteger(String name, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number, not " + value);
+        }
+    }
+
+    // Rebuilds the per-day map in the shape of the original "stats" JSON
+    public Map<String, Object> toAttributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        if (extra != null) {
+            attributes.putAll(extra);
+        }
+        if (calories != null) {
+            attributes.put("calories", calories);
+        }
+        if (steps != null) {
+            attributes.put("steps", steps);
+        }
+        if (goalStatus != null) {
+            attributes.put(GOAL_STATUS, goalStatus);
+        }
+        return attributes;
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+PersonStatIngestService is a write-behind buffer for bursts of device stats
+--- accept() only merges the update into memory, keyed by (person, date), and returns
+--- values are converted when accepted, so a bad one is refused at once and never reaches a flush
+--- repeated updates for the same person/date are merged, so a burst becomes one row write
+--- flush() merges pending days into the stored ones through PersonStatService in batched transactions,
+    every "stats.ingest.flush-interval-ms", as soon as "stats.ingest.flush-size" days are pending, and on shutdown;
+    a batch that fails is retried one day per transaction, so only the failing days are dropped
+--- at "stats.ingest.max-pending" days new keys are dropped rather than growing without bound
+--- metrics: stats.ingest.buffer.depth, stats.ingest.flush (timer), stats.ingest.accepted, stats.ingest.dropped{reason}
+--- JFR events StatsMergeEvent and StatsFlushEvent, when a recording enables them
+ */
+@Service
+public class PersonStatIngestService {
+    private static final Logger log = LoggerFactory.getLogger(PersonStatIngestService.class);
+
+    // person and date of one buffered day
+    private static class Key {
+        final long personId;
+        final String date;
+
+        Key(long personId, String date) {
+            this.personId = personId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).personId == personId && ((Key) o).date.equals(date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(personId) * 31 + date.hashCode();
+        }
+    }
+
+    private final PersonStatService statService;
+    private final PersonCache personCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushSize;
+    private final int maxPending;
+    private final int batchSize;
+
+    private final ConcurrentHashMap<Key, Map<String, Object>> pending = new ConcurrentHashMap<>();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stats-ingest-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private final Counter accepted;
+    private final Counter droppedFull;
+    private final Counter droppedUnknown;
+    private final Counter droppedError;
+    private final Timer flushTimer;
+
+    public PersonStatIngestService(PersonStatService statService, PersonCache personCache,
+                                   TransactionTemplate transactionTemplate, MeterRegistry registry,
+                                   @Value("${stats.ingest.flush-size:1000}") int flushSize,
+                                   @Value("${stats.ingest.max-pending:100000}") int maxPending,
+                                   @Value("${stats.ingest.batch-size:500}") int batchSize) {
+        this.statService = statService;
+        this.personCache = personCache;
+        this.transactionTemplate = transactionTemplate;
+        this.flushSize = flushSize;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+
+        Gauge.builder("stats.ingest.buffer.depth", pending, Map::size).register(registry);
+        this.accepted = registry.counter("stats.ingest.accepted");
+        this.droppedFull = registry.counter("stats.ingest.dropped", "reason", "buffer_full");
+        this.droppedUnknown = registry.counter("stats.ingest.dropped", "reason", "unknown_person");
+        this.droppedError = registry.counter("stats.ingest.dropped", "reason", "write_failed");
+        this.flushTimer = Timer.builder("stats.ingest.flush").publishPercentiles(0.5, 0.99).register(registry);
+    }
+
+    /* Buffers one day of stats, false when the buffer is full and the update was dropped
+     * IllegalArgumentException when a value does not convert (PersonStat.fromAttributes)
+     */
+    public boolean accept(long personId, String date, Map<String, Object> attributes) {
+        Map<String, Object> converted = PersonStat.normalize(attributes);
+        Key key = new Key(personId, date);
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            droppedFull.increment();
+            return false;
+        }
+        StatsMergeEvent event = new StatsMergeEvent();  // JFR, costs nothing until a recording enables it
+        boolean buffered = event.isEnabled() && pending.containsKey(key);
+        event.begin();
+        pending.merge(key, converted, (previous, update) -> {
+            Map<String, Object> merged = new HashMap<>(previous);
+            merged.putAll(update);  // later attributes win
+            return merged;
+        });
+        event.end();
+        if (event.shouldCommit()) {
+            event.personId = personId;
+            event.date = date;
+            event.attributes = converted.size();
+            event.merged = buffered;
+            event.pending = pending.size();
+            event.commit();
+        }
+        accepted.increment();
+        if (pending.size() >= flushSize && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                flush();
+            });
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.ingest.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /* Drains everything pending when the flush starts
+     * entries are removed one at a time, so an update arriving mid-flush either lands in
+     * an entry not yet drained or starts a new entry for the next flush, it is never lost
+     */
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        StatsFlushEvent event = new StatsFlushEvent();
+        event.begin();
+        List<Key> keys = new ArrayList<>(pending.keySet());
+        int flushed = flushTimer.record(() -> {
+            int written = 0;
+            for (int from = 0; from < keys.size(); from += batchSize) {
+                List<Key> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+                written += writeBatch(batch);
+            }
+            return written;
+        });
+        event.end();
+        if (event.shouldCommit()) {
+            event.entries = keys.size();
+            event.written = flushed;
+            event.commit();
+        }
+        return flushed;
+    }
+
+    private int writeBatch(List<Key> batch) {
+        Map<Key, Map<String, Object>> drained = new HashMap<>();
+        for (Key key : batch) {
+            Map<String, Object> attributes = pending.remove(key);
+            if (attributes == null) {
+                continue;
+            }
+            if (personCache.findById(key.personId).isEmpty()) {
+                droppedUnknown.increment();
+                continue;
+            }
+            drained.put(key, attributes);
+        }
+        try {
+            return write(drained);
+        } catch (RuntimeException e) {
+            log.warn("Stats ingest batch of {} days failed, retrying them one at a time", drained.size(), e);
+        }
+        int written = 0;
+        for (Map.Entry<Key, Map<String, Object>> entry : drained.entrySet()) {
+            try {
+                written += write(Map.of(entry.getKey(), entry.getValue()));
+            } catch (RuntimeException e) {
+                log.warn("Stats ingest of person {} on {} failed", entry.getKey().personId, entry.getKey().date, e);
+                droppedError.increment();
+            }
+        }
+        return written;
+    }
+
+    // Merges the days into person_stat in one transaction, the number written
+    private int write(Map<Key, Map<String, Object>> days) {
+        Integer written = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Map.Entry<Key, Map<String, Object>> entry : days.entrySet()) {
+                Optional<Person> person = personCache.findById(entry.getKey().personId);
+                if (person.isEmpty()) {  // deleted since it was drained
+                    droppedUnknown.increment();
+                    continue;
+                }
+                try {
+                    statService.merge(person.get(), entry.getKey().date, entry.getValue());
+                } catch (JsonProcessingException e) {
+                    droppedError.increment();
+                    continue;
+                }
+                count++;
+            }
+            return count;
+        });
+        return written == null ? 0 : written;
+    }
+
+    // Graceful shutdown: everything accepted is written before the datasource closes
+    @PreDestroy
+    public void drain() {
+        flusher.shutdown();
+        int written = flush();
+        log.info("Stats ingest drained {} pending days on shutdown", written);
+    }
+}
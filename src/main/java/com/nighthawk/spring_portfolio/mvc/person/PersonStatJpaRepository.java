@@ -0,0 +1,52 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/*
+Time-series access to PersonStat, every query is served by the (person_id, stat_date) index
+ */
+@Transactional(readOnly = true)  // declared queries are reads (SQLite reader pool), writes say @Transactional
+public interface PersonStatJpaRepository extends JpaRepository<PersonStat, Long> {
+    Optional<PersonStat> findByPersonIdAndDate(Long personId, String date);
+
+    List<PersonStat> findByPersonIdOrderByDateAsc(Long personId);
+
+    // dates are "yyyy-MM-dd" so text comparison is chronological, only rows in range are read
+    List<PersonStat> findByPersonIdAndDateBetweenOrderByDateAsc(Long personId, String from, String to);
+
+    @Transactional
+    void deleteByPersonId(Long personId);
+
+    // Append a new day or replace an existing one in a single statement (SQLite UPSERT)
+    @Modifying
+    @Transactional
+    @Query(
+            value = "INSERT INTO person_stat (person_id, stat_date, steps, calories, goal_status, extra) " +
+                    "VALUES (:personId, :date, :steps, :calories, :goalStatus, :extra) " +
+                    "ON CONFLICT (person_id, stat_date) DO UPDATE SET " +
+                    "steps = excluded.steps, calories = excluded.calories, " +
+                    "goal_status = excluded.goal_status, extra = excluded.extra",
+            nativeQuery = true)
+    int upsert(@Param("personId") Long personId, @Param("date") String date,
+               @Param("steps") Integer steps, @Param("calories") Integer calories,
+               @Param("goalStatus") Boolean goalStatus, @Param("extra") String extra);
+
+    // Same as upsert, but an existing day wins; used when migrating the legacy JSON column
+    @Modifying
+    @Transactional
+    @Query(
+            value = "INSERT INTO person_stat (person_id, stat_date, steps, calories, goal_status, extra) " +
+                    "VALUES (:personId, :date, :steps, :calories, :goalStatus, :extra) " +
+                    "ON CONFLICT (person_id, stat_date) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("personId") Long personId, @Param("date") String date,
+                       @Param("steps") Integer steps, @Param("calories") Integer calories,
+                       @Param("goalStatus") Boolean goalStatus, @Param("extra") String extra);
+}
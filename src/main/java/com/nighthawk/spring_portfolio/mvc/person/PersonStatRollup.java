@@ -0,0 +1,88 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+PersonStatRollup holds weekly and monthly aggregates of PersonStat for charting
+--- "week" periods start on Monday (ISO), "month" periods start on the 1st
+--- sums and counts are adjusted by deltas on every stats write (see PersonStatRollupService)
+--- averages are derived from sum / days, so they never drift from the stored totals
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "person_stat_rollup",
+       indexes = @Index(name = "ux_person_stat_rollup_period", columnList = "person_id, period, period_start", unique = true))
+public class PersonStatRollup {
+    public static final String WEEK = "week";
+    public static final String MONTH = "month";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "integer")
+    private Long id;
+
+    @Column(name = "person_id", nullable = false)
+    private Long personId;
+
+    @Column(nullable = false)
+    private String period;
+
+    // first day of the period, "yyyy-MM-dd"
+    @Column(name = "period_start", nullable = false)
+    private String periodStart;
+
+    // number of days with stats in the period
+    private int days;
+
+    private long stepsSum;
+    private int stepsMax;
+
+    private long caloriesSum;
+    private int caloriesMax;
+
+    // days where steps beat the goal
+    private int goalHits;
+
+    public double getStepsAvg() {
+        return days == 0 ? 0 : (double) stepsSum / days;
+    }
+
+    public double getCaloriesAvg() {
+        return days == 0 ? 0 : (double) caloriesSum / days;
+    }
+
+    // First day of the period containing date
+    public static LocalDate periodStart(String period, LocalDate date) {
+        if (WEEK.equals(period)) {
+            return date.with(DayOfWeek.MONDAY);
+        }
+        if (MONTH.equals(period)) {
+            return date.withDayOfMonth(1);
+        }
+        throw new IllegalArgumentException("Unknown rollup period: " + period);
+    }
+
+    // Last day of the period containing date
+    public static LocalDate periodEnd(String period, LocalDate date) {
+        if (WEEK.equals(period)) {
+            return periodStart(period, date).plusDays(6);
+        }
+        return periodStart(period, date).plusMonths(1).minusDays(1);
+    }
+
+}
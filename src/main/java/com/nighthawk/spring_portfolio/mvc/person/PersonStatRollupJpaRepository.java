@@ -0,0 +1,75 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/*
+Rollup reads and delta writes, served by the (person_id, period, period_start) index
+ */
+@Transactional(readOnly = true)  // declared queries are reads (SQLite reader pool), writes say @Transactional
+public interface PersonStatRollupJpaRepository extends JpaRepository<PersonStatRollup, Long> {
+    List<PersonStatRollup> findByPersonIdAndPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(
+            Long personId, String period, String from, String to);
+
+    @Transactional
+    void deleteByPersonId(Long personId);
+
+    // Adds deltas to a period, creating it on first use; max only grows here
+    @Modifying
+    @Transactional
+    @Query(
+            value = "INSERT INTO person_stat_rollup (person_id, period, period_start, days, steps_sum, steps_max, calories_sum, calories_max, goal_hits) " +
+                    "VALUES (:personId, :period, :periodStart, :days, :steps, :stepsMax, :calories, :caloriesMax, :goalHits) " +
+                    "ON CONFLICT (person_id, period, period_start) DO UPDATE SET " +
+                    "days = days + excluded.days, " +
+                    "steps_sum = steps_sum + excluded.steps_sum, steps_max = max(steps_max, excluded.steps_max), " +
+                    "calories_sum = calories_sum + excluded.calories_sum, calories_max = max(calories_max, excluded.calories_max), " +
+                    "goal_hits = goal_hits + excluded.goal_hits",
+            nativeQuery = true)
+    int addDelta(@Param("personId") Long personId, @Param("period") String period, @Param("periodStart") String periodStart,
+                 @Param("days") int days, @Param("steps") long steps, @Param("stepsMax") int stepsMax,
+                 @Param("calories") long calories, @Param("caloriesMax") int caloriesMax, @Param("goalHits") int goalHits);
+
+    // A lowered day can lower the max, re-read it from the period's rows (at most 31)
+    @Modifying
+    @Transactional
+    @Query(
+            value = "UPDATE person_stat_rollup SET " +
+                    "steps_max = (SELECT coalesce(max(steps), 0) FROM person_stat s WHERE s.person_id = :personId AND s.stat_date BETWEEN :periodStart AND :periodEnd), " +
+                    "calories_max = (SELECT coalesce(max(calories), 0) FROM person_stat s WHERE s.person_id = :personId AND s.stat_date BETWEEN :periodStart AND :periodEnd) " +
+                    "WHERE person_id = :personId AND period = :period AND period_start = :periodStart",
+            nativeQuery = true)
+    int refreshMax(@Param("personId") Long personId, @Param("period") String period,
+                   @Param("periodStart") String periodStart, @Param("periodEnd") String periodEnd);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM person_stat_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    // Backfill: weeks start Monday, strftime('%w') is 0 for Sunday
+    @Modifying
+    @Transactional
+    @Query(
+            value = "INSERT INTO person_stat_rollup (person_id, period, period_start, days, steps_sum, steps_max, calories_sum, calories_max, goal_hits) " +
+                    "SELECT person_id, 'week', date(stat_date, '-' || ((strftime('%w', stat_date) + 6) % 7) || ' days') AS start, " +
+                    "count(*), coalesce(sum(steps), 0), coalesce(max(steps), 0), coalesce(sum(calories), 0), coalesce(max(calories), 0), coalesce(sum(goal_status), 0) " +
+                    "FROM person_stat GROUP BY person_id, start",
+            nativeQuery = true)
+    int backfillWeeks();
+
+    @Modifying
+    @Transactional
+    @Query(
+            value = "INSERT INTO person_stat_rollup (person_id, period, period_start, days, steps_sum, steps_max, calories_sum, calories_max, goal_hits) " +
+                    "SELECT person_id, 'month', strftime('%Y-%m-01', stat_date) AS start, " +
+                    "count(*), coalesce(sum(steps), 0), coalesce(max(steps), 0), coalesce(sum(calories), 0), coalesce(max(calories), 0), coalesce(sum(goal_status), 0) " +
+                    "FROM person_stat GROUP BY person_id, start",
+            nativeQuery = true)
+    int backfillMonths();
+}
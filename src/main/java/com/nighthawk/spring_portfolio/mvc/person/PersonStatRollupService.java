@@ -0,0 +1,76 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/*
+PersonStatRollupService keeps weekly/monthly aggregates current without re-reading history
+--- a write applies the difference between the previous and new day to each period
+--- only a lowered value can lower a max, then the period's days (at most 31) are re-read
+ */
+@Service
+public class PersonStatRollupService {
+    private static final String[] PERIODS = { PersonStatRollup.WEEK, PersonStatRollup.MONTH };
+
+    @Autowired
+    private PersonStatRollupJpaRepository rollupRepository;
+
+    // Called after "current" is written, "previous" is the replaced day or null when the day is new
+    public void apply(PersonStat previous, PersonStat current) {
+        LocalDate date = LocalDate.parse(current.getDate());
+        int days = previous == null ? 1 : 0;
+        int steps = value(current.getSteps());
+        int calories = value(current.getCalories());
+        int goal = Boolean.TRUE.equals(current.getGoalStatus()) ? 1 : 0;
+        boolean lowered = false;
+        if (previous != null) {
+            lowered = steps < value(previous.getSteps()) || calories < value(previous.getCalories());
+        }
+
+        for (String period : PERIODS) {
+            String start = PersonStatRollup.periodStart(period, date).toString();
+            rollupRepository.addDelta(current.getPersonId(), period, start, days,
+                    steps - (previous == null ? 0 : value(previous.getSteps())), steps,
+                    calories - (previous == null ? 0 : value(previous.getCalories())), calories,
+                    goal - (previous != null && Boolean.TRUE.equals(previous.getGoalStatus()) ? 1 : 0));
+            if (lowered) {
+                rollupRepository.refreshMax(current.getPersonId(), period, start,
+                        PersonStatRollup.periodEnd(period, date).toString());
+            }
+        }
+    }
+
+    // Periods overlapping [from, to], ie from=2022-11-15 includes the week starting 2022-11-14
+    public List<PersonStatRollup> rollups(Long personId, String period, LocalDate from, LocalDate to) {
+        return rollupRepository.findByPersonIdAndPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(
+                personId, period, PersonStatRollup.periodStart(period, from).toString(), to.toString());
+    }
+
+    public void deleteAll(Long personId) {
+        rollupRepository.deleteByPersonId(personId);
+    }
+
+    // One-time job: rebuild every rollup from person_stat with two grouped INSERT ... SELECT statements
+    @Transactional
+    public int backfill() {
+        rollupRepository.deleteAllRows();
+        return rollupRepository.backfillWeeks() + rollupRepository.backfillMonths();
+    }
+
+    // Startup hook, only existing data without rollups needs the backfill
+    @Transactional
+    public int backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return 0;
+        }
+        return backfill();
+    }
+
+    private static int value(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,124 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+PersonStatService is the single write path for daily stats
+--- a write touches one (person_id, stat_date) row, independent of how long the history is
+--- reads return the original "stats" shape: { "yyyy-MM-dd": { "steps": .., "calories": .. } }
+ */
+@Service
+public class PersonStatService {
+
+    @Autowired
+    private PersonStatJpaRepository statRepository;
+
+    @Autowired
+    private PersonStatRollupService rollupService;
+
+    @Autowired
+    private GoalLeaderboardService leaderboardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Append or replace one day for person, goal status is judged against the person's step goal
+    @Transactional
+    public PersonStat record(Person person, String date, Map<String, Object> attributes) throws JsonProcessingException {
+        PersonStat previous = statRepository.findByPersonIdAndDate(person.getId(), date).orElse(null);
+        return write(person, PersonStat.fromAttributes(person.getId(), date, attributes), previous);
+    }
+
+    /* Adds attributes to the stored day, attributes not given keep their stored value
+     * the ingest path, where a device may send steps and calories in separate updates
+     */
+    @Transactional
+    public PersonStat merge(Person person, String date, Map<String, Object> attributes) throws JsonProcessingException {
+        PersonStat previous = statRepository.findByPersonIdAndDate(person.getId(), date).orElse(null);
+        Map<String, Object> merged = previous == null ? new HashMap<>() : previous.toAttributes();
+        if (attributes.containsKey("goalStatus")) {  // stored days use the legacy "goalStatus: " key
+            merged.remove(PersonStat.GOAL_STATUS);
+        }
+        merged.putAll(attributes);
+        return write(person, PersonStat.fromAttributes(person.getId(), date, merged), previous);
+    }
+
+    private PersonStat write(Person person, PersonStat stat, PersonStat previous) throws JsonProcessingException {
+        if (stat.getSteps() != null && person.getGoalStep() != null) {
+            stat.setGoalStatus(stat.getSteps() > person.getGoalStep());
+        }
+        statRepository.upsert(stat.getPersonId(), stat.getDate(), stat.getSteps(), stat.getCalories(),
+                stat.getGoalStatus(), mapper.writeValueAsString(stat.getExtra()));
+        rollupService.apply(previous, stat);  // weekly/monthly totals follow the same transaction
+        leaderboardService.apply(previous, stat);  // leaderboards follow once it commits
+        return stat;
+    }
+
+    // Full history, only used where the complete Person is requested
+    public Map<String, Map<String, Object>> history(Long personId) {
+        return toStatsMap(statRepository.findByPersonIdOrderByDateAsc(personId));
+    }
+
+    // Inclusive date range, reads only the requested rows
+    public Map<String, Map<String, Object>> range(Long personId, String from, String to) {
+        return toStatsMap(statRepository.findByPersonIdAndDateBetweenOrderByDateAsc(personId, from, to));
+    }
+
+    @Transactional
+    public void deleteAll(Long personId) {
+        statRepository.deleteByPersonId(personId);
+        rollupService.deleteAll(personId);
+        leaderboardService.remove(personId);
+    }
+
+    public static Map<String, Map<String, Object>> toStatsMap(List<PersonStat> stats) {
+        Map<String, Map<String, Object>> statsMap = new LinkedHashMap<>();
+        for (PersonStat stat : stats) {
+            statsMap.put(stat.getDate(), stat.toAttributes());
+        }
+        return statsMap;
+    }
+
+    /* Moves the legacy person.stats JSON column into person_stat
+     * Each migrated person has the column cleared, so the work is done once and reruns are cheap
+     */
+    @Transactional
+    public int migrateLegacyStats() throws JsonProcessingException {
+        // the column only exists on databases created before person_stat
+        boolean hasColumn = jdbcTemplate.queryForList("PRAGMA table_info(person)").stream()
+                .anyMatch(column -> "stats".equals(column.get("name")));
+        if (!hasColumn) {
+            return 0;
+        }
+
+        int migrated = 0;
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, stats FROM person WHERE stats IS NOT NULL AND stats <> '{}'");
+        for (Map<String, Object> row : rows) {
+            Long personId = ((Number) row.get("id")).longValue();
+            Map<String, Map<String, Object>> stats = mapper.readValue((String) row.get("stats"),
+                    new TypeReference<Map<String, Map<String, Object>>>() {});
+            for (Map.Entry<String, Map<String, Object>> day : stats.entrySet()) {
+                PersonStat stat = PersonStat.fromAttributes(personId, day.getKey(), day.getValue());
+                migrated += statRepository.insertIfAbsent(stat.getPersonId(), stat.getDate(), stat.getSteps(),
+                        stat.getCalories(), stat.getGoalStatus(), mapper.writeValueAsString(stat.getExtra()));
+            }
+            jdbcTemplate.update("UPDATE person SET stats = NULL WHERE id = ?", personId);
+        }
+        return migrated;
+    }
+}
@@ -0,0 +1,12 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+/*
+Projection used by autocomplete, only id, name and email are read from the database
+ */
+public interface PersonSuggestion {
+    Long getId();
+
+    String getName();
+
+    String getEmail();
+}
@@ -0,0 +1,25 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import java.util.Date;
+
+/*
+Projection used by list views (people listing, search)
+Only these columns are selected, password and stats are never read for a list
+ */
+public interface PersonSummary {
+    Long getId();
+
+    String getEmail();
+
+    String getName();
+
+    Date getDob();
+
+    Integer getBmi();
+
+    Integer getGoalStep();
+
+    default int getAge() {
+        return Person.ageOf(getDob());
+    }
+}
@@ -0,0 +1,29 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+JFR event: one flush of the ingest buffer to person_stat (PersonStatIngestService.flush)
+--- off unless a recording enables it (see FlightRecordingService)
+ */
+@Name(StatsFlushEvent.NAME)
+@Label("Stats Flush")
+@Category({ "Spring Portfolio", "Person Stats" })
+@Description("Buffered stats written to the database")
+@Enabled(false)
+@StackTrace(false)
+public class StatsFlushEvent extends Event {
+    public static final String NAME = "spring_portfolio.StatsFlush";
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Written")
+    int written;
+}
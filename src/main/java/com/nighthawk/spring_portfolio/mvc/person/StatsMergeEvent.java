@@ -0,0 +1,38 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+JFR event: one day of device stats merged into the ingest buffer (PersonStatIngestService.accept)
+--- off unless a recording enables it (see FlightRecordingService)
+ */
+@Name(StatsMergeEvent.NAME)
+@Label("Stats Merge")
+@Category({ "Spring Portfolio", "Person Stats" })
+@Description("A stats update merged into the write-behind buffer")
+@Enabled(false)
+@StackTrace(false)
+public class StatsMergeEvent extends Event {
+    public static final String NAME = "spring_portfolio.StatsMerge";
+
+    @Label("Person Id")
+    long personId;
+
+    @Label("Date")
+    String date;
+
+    @Label("Attributes")
+    int attributes;
+
+    @Label("Merged Into Pending")
+    boolean merged;
+
+    @Label("Pending Entries")
+    int pending;
+}
@@ -0,0 +1,77 @@
+package com.nighthawk.spring_portfolio.mvc.seed;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+SeedService inserts starting data once, however often the application starts
+--- existing key hashes are read in one query, duplicates are then found in memory
+--- rows stored before the key_hash column existed get their hash filled in once
+--- missing rows are inserted in one transaction, sent as JDBC batches (hibernate.jdbc.batch_size)
+--- seeding time is logged per entity
+ */
+@Service
+public class SeedService {
+    private static final Logger log = LoggerFactory.getLogger(SeedService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Inserts the rows whose key is not stored yet, returns how many were inserted
+    public <T extends Seedable> int seed(Class<T> type, List<T> rows) {
+        long start = System.nanoTime();
+        String entity = entityManager.getMetamodel().entity(type).getName();
+
+        List<String> stored = entityManager.createQuery("SELECT s.keyHash FROM " + entity + " s", String.class).getResultList();
+        Set<String> existing = new HashSet<>(stored);
+        if (existing.remove(null)) {
+            backfill(type, entity, existing);
+        }
+
+        List<T> missing = new ArrayList<>();
+        for (T row : rows) {
+            row.setKeyHash(Seedable.hashOf(row.seedKey()));
+            if (existing.add(row.getKeyHash())) {  // also drops repeats within rows
+                missing.add(row);
+            }
+        }
+        if (!missing.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (T row : missing) {
+                    entityManager.persist(row);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+        log.info("Seeded {}: {} of {} rows inserted in {} ms", entity, missing.size(), rows.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return missing.size();
+    }
+
+    // Hashes rows stored without one, a row whose key repeats an earlier one keeps a null hash
+    private <T extends Seedable> void backfill(Class<T> type, String entity, Set<String> existing) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (T row : entityManager.createQuery("SELECT s FROM " + entity + " s WHERE s.keyHash IS NULL", type).getResultList()) {
+                String hash = Seedable.hashOf(row.seedKey());
+                if (existing.add(hash)) {
+                    row.setKeyHash(hash);
+                }
+            }
+        });
+    }
+}
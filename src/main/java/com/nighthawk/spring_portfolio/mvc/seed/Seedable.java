@@ -0,0 +1,39 @@
+package com.nighthawk.spring_portfolio.mvc.seed;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/*
+Seedable is an entity SeedService can insert idempotently
+--- seedKey() is the natural key, ie the text of a joke or the email of a person
+--- keyHash is a SHA-256 of the normalized key (trimmed, lower case, single spaces), stored in a uniquely indexed column,
+    so "Hello  World" and "hello world" are the same row and duplicates are found by an index lookup
+ */
+public interface Seedable {
+
+    String seedKey();
+
+    String getKeyHash();
+
+    void setKeyHash(String keyHash);
+
+    static String hashOf(String key) {
+        if (key == null) {
+            return null;
+        }
+        String normalized = key.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = Character.forDigit((digest[i] >> 4) & 0xf, 16);
+                hex[2 * i + 1] = Character.forDigit(digest[i] & 0xf, 16);
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
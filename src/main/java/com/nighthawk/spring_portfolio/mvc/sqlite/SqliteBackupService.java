@@ -0,0 +1,246 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+SqliteBackupService writes gzipped snapshots of the live database without stopping the application
+--- "VACUUM INTO" on a connection of its own copies one consistent read snapshot of the database into a new file;
+    with WAL (sqlite.tuned.enabled=true) it is a reader, writers and readers carry on while it runs
+    (with the rollback journal, writers wait for the copy, up to the busy timeout)
+--- the copy is checked with "PRAGMA quick_check", gzipped into "sqlite-<time>.db.gz" (time to the millisecond, never reused) and the uncompressed copy removed;
+    compression is most of the time and CPU, "sqlite.backup.gzip-level" 1 (default) is ~4x faster than 6 for ~15% more bytes
+--- snapshots go to "sqlite.backup.dir" (default: "backups" next to the database file), the newest "sqlite.backup.keep" are kept
+--- runs on "sqlite.backup.cron" (Spring cron, "-" disables it) or through POST /api/admin/backup
+--- single flight: a backup asked for while one runs gets that one's result
+--- restore: stop the application, gunzip a snapshot over the database file, delete the -wal/-shm files
+ */
+@Service
+public class SqliteBackupService {
+    private static final Logger log = LoggerFactory.getLogger(SqliteBackupService.class);
+    private static final String PREFIX = "sqlite-";
+    private static final String SUFFIX = ".db.gz";
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // one written snapshot
+    public static class Backup {
+        private final String file;
+        private final long bytes;  // gzipped
+        private final long databaseBytes;  // the vacuumed copy before compression
+        private final long millis;
+
+        Backup(String file, long bytes, long databaseBytes, long millis) {
+            this.file = file;
+            this.bytes = bytes;
+            this.databaseBytes = databaseBytes;
+            this.millis = millis;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getDatabaseBytes() {
+            return databaseBytes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    private final String url;
+    private final Path dir;
+    private final int keep;
+    private final int busyTimeoutMs;
+    private final int gzipLevel;
+    private final Timer durations;
+    private final Counter failures;
+    private final AtomicReference<CompletableFuture<Backup>> inFlight = new AtomicReference<>();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sqlite-backup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public SqliteBackupService(@Value("${spring.datasource.url}") String url,
+                               @Value("${sqlite.backup.dir:}") String dir,
+                               @Value("${sqlite.backup.keep:7}") int keep,
+                               @Value("${sqlite.busy-timeout-ms:5000}") int busyTimeoutMs,
+                               @Value("${sqlite.backup.gzip-level:1}") int gzipLevel,
+                               MeterRegistry registry) {
+        this.url = url;
+        this.dir = dir.isBlank() ? databaseFile(url).toAbsolutePath().getParent().resolve("backups") : Paths.get(dir);
+        this.keep = Math.max(1, keep);  // the snapshot just written is always kept
+        this.busyTimeoutMs = busyTimeoutMs;
+        this.gzipLevel = gzipLevel;
+        this.durations = Timer.builder("sqlite.backup.duration").register(registry);
+        this.failures = Counter.builder("sqlite.backup.failures").register(registry);
+    }
+
+    // "jdbc:sqlite:volumes/sqlite.db?x=y" is volumes/sqlite.db
+    static Path databaseFile(String url) {
+        String path = url.substring("jdbc:sqlite:".length());
+        int query = path.indexOf('?');
+        return Paths.get(query < 0 ? path : path.substring(0, query));
+    }
+
+    @Scheduled(cron = "${sqlite.backup.cron:-}")
+    public void scheduled() {
+        backup().exceptionally(e -> null);  // logged and counted by the backup itself
+    }
+
+    // Starts a backup unless one is running, either way returns the running one
+    public CompletableFuture<Backup> backup() {
+        CompletableFuture<Backup> started = new CompletableFuture<>();
+        CompletableFuture<Backup> running = inFlight.compareAndExchange(null, started);
+        if (running != null) {
+            return running;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    started.complete(durations.recordCallable(this::write));
+                } catch (Exception e) {
+                    failures.increment();
+                    log.warn("SQLite backup into {} failed", dir, e);
+                    started.completeExceptionally(e);
+                } finally {
+                    inFlight.set(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // stopped: nothing will run this backup, later callers must not wait on it
+            inFlight.set(null);
+            started.completeExceptionally(e);
+        }
+        return started;
+    }
+
+    private Backup write() throws IOException, SQLException {
+        long start = System.nanoTime();
+        Files.createDirectories(dir);
+        LocalDateTime time = LocalDateTime.now();
+        while (Files.exists(dir.resolve(PREFIX + time.format(STAMP) + SUFFIX))) {
+            time = time.plus(1, ChronoUnit.MILLIS);  // never replaces a snapshot, names still sort by time
+        }
+        String name = PREFIX + time.format(STAMP);
+        Path copy = dir.resolve(name + ".db.tmp");
+        Path part = dir.resolve(name + SUFFIX + ".part");
+        Path target = dir.resolve(name + SUFFIX);
+        try {
+            Files.deleteIfExists(copy);  // VACUUM INTO refuses an existing file
+            try (Connection connection = connect(url)) {
+                try (PreparedStatement vacuum = connection.prepareStatement("VACUUM INTO ?")) {
+                    vacuum.setString(1, copy.toAbsolutePath().toString());
+                    vacuum.execute();
+                }
+            }
+            check(copy);
+            try (InputStream in = Files.newInputStream(copy);
+                 OutputStream out = gzip(Files.newOutputStream(part))) {
+                in.transferTo(out);
+            }
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            Backup backup = new Backup(target.toString(), Files.size(target), Files.size(copy), (System.nanoTime() - start) / 1_000_000);
+            log.info("SQLite backup {}: {} bytes, {} gzipped, {} ms", target, backup.databaseBytes, backup.bytes, backup.millis);
+            prune();
+            return backup;
+        } finally {
+            Files.deleteIfExists(copy);
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private OutputStream gzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, 1 << 16) {
+            {
+                def.setLevel(gzipLevel);
+            }
+        };
+    }
+
+    private Connection connect(String url) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(busyTimeoutMs);
+        return config.createConnection(url);
+    }
+
+    // A snapshot that is not a sound database is not kept
+    private void check(Path copy) throws SQLException {
+        try (Connection connection = connect("jdbc:sqlite:" + copy.toAbsolutePath());
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("PRAGMA quick_check")) {
+            String status = result.next() ? result.getString(1) : "no result";
+            if (!"ok".equals(status)) {
+                throw new SQLException("backup copy failed quick_check: " + status);
+            }
+        }
+    }
+
+    // Snapshots, newest first
+    public List<Path> list() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            files.forEach(snapshots::add);
+        }
+        snapshots.sort(Comparator.comparing(Path::getFileName).reversed());  // names sort by time
+        return snapshots;
+    }
+
+    private void prune() throws IOException {
+        List<Path> snapshots = list();
+        for (Path old : snapshots.subList(Math.min(keep, snapshots.size()), snapshots.size())) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+}
@@ -0,0 +1,40 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+* SQLite-aware persistence mode, "sqlite.tuned.enabled=false" falls back to Spring Boot's single default pool
+* Only the routing DataSource is a DataSource bean, the pools behind it are closed with SqliteDataSources
+*/
+@Configuration
+@ConditionalOnProperty(name = "sqlite.tuned.enabled", havingValue = "true")
+public class SqliteConfig {
+
+    @Bean(destroyMethod = "close")
+    public SqliteDataSources sqliteDataSources(@Value("${spring.datasource.url}") String url,
+                                               @Value("${sqlite.synchronous:NORMAL}") String synchronous,
+                                               @Value("${sqlite.mmap-size:268435456}") long mmapSize,
+                                               @Value("${sqlite.cache-size:-16000}") int cacheSize,
+                                               @Value("${sqlite.busy-timeout-ms:5000}") int busyTimeoutMs,
+                                               @Value("${sqlite.read-pool-size:8}") int readPoolSize,
+                                               MeterRegistry registry) {
+        SqliteDataSources.Settings settings = new SqliteDataSources.Settings();
+        settings.synchronous = synchronous;
+        settings.mmapSize = mmapSize;
+        settings.cacheSize = cacheSize;
+        settings.busyTimeoutMs = busyTimeoutMs;
+        return new SqliteDataSources(url, settings, readPoolSize, registry);
+    }
+
+    @Bean
+    public DataSource dataSource(SqliteDataSources sqliteDataSources) {
+        return sqliteDataSources.getDataSource();
+    }
+}
@@ -0,0 +1,107 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import java.io.Closeable;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.sqlite.SQLiteConfig;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+SqliteDataSources builds the connections of the tuned SQLite mode
+--- writer: one connection, WAL journal, "BEGIN IMMEDIATE"; all writers queue for it instead of failing with SQLITE_BUSY
+--- readers: a pool of query-only connections; in WAL mode they read the last commit while the writer works
+--- routing: read-only transactions (Spring Data reads, @Transactional(readOnly = true)) use a reader,
+    everything else (writes, schema update, JDBC outside a transaction) uses the writer
+--- synchronous=NORMAL: a commit is not fsynced, WAL checkpoints are; a power cut may lose the last commits, never corrupts
+--- pools are named sqlite-writer/sqlite-reader in the hikaricp.* metrics
+ */
+public class SqliteDataSources implements Closeable {
+    private static final String WRITE = "write";
+    private static final String READ = "read";
+
+    // pragmas shared by both pools
+    public static class Settings {
+        public String synchronous = "NORMAL";
+        public long mmapSize = 268_435_456;  // bytes of the file mapped into memory
+        public int cacheSize = -16_000;  // pages when positive, KiB when negative (SQLite convention)
+        public int busyTimeoutMs = 5000;
+    }
+
+    private final HikariDataSource writer;
+    private final HikariDataSource reader;
+    private final DataSource dataSource;
+
+    // registry may be null (no pool metrics)
+    public SqliteDataSources(String url, Settings settings, int readPoolSize, MeterRegistry registry) {
+        SQLiteConfig writerConfig = config(settings);
+        writerConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);  // kept in the file, readers open it in WAL mode too
+        writerConfig.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+        this.writer = pool("sqlite-writer", url, writerConfig, 1, null, registry);  // first, it switches the file to WAL
+        this.reader = pool("sqlite-reader", url, config(settings), readPoolSize, "PRAGMA query_only = 1", registry);
+        this.dataSource = routing(writer, reader);
+    }
+
+    // the DataSource the application uses, writer or reader by transaction
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public HikariDataSource getWriter() {
+        return writer;
+    }
+
+    public HikariDataSource getReader() {
+        return reader;
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+        writer.close();
+    }
+
+    // Routing by transaction, behind a lazy proxy so the read-only flag is known when a connection is taken
+    private static DataSource routing(DataSource writer, DataSource reader) {
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? READ : WRITE;
+            }
+        };
+        routing.setTargetDataSources(Map.of(WRITE, writer, READ, reader));
+        routing.setDefaultTargetDataSource(writer);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static SQLiteConfig config(Settings settings) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(settings.synchronous.toUpperCase()));
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(settings.mmapSize));
+        config.setCacheSize(settings.cacheSize);
+        config.setBusyTimeout(settings.busyTimeoutMs);
+        return config;
+    }
+
+    private static HikariDataSource pool(String name, String url, SQLiteConfig sqlite, int size, String initSql, MeterRegistry registry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.setDataSourceProperties(sqlite.toProperties());
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size);
+        config.setConnectionInitSql(initSql);
+        config.setMetricRegistry(registry);
+        return new HikariDataSource(config);
+    }
+}
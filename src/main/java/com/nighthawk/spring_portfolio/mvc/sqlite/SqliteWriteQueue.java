@@ -0,0 +1,197 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+SqliteWriteQueue runs small write transactions on one thread and commits them in groups
+--- callers hand over their work and wait; the writer takes everything queued (up to "sqlite.write.max-batch")
+    and runs it in ONE transaction, so N concurrent writes cost one commit instead of N
+--- the persistence context is flushed and cleared between works, each sees the database as the previous left it
+--- if any work fails the group is rolled back and each work is retried alone, only the failing one fails;
+    works may therefore run twice and must only change the database (after-commit hooks are fine)
+--- with "sqlite.tuned.enabled=false" every work runs at once on the caller's thread in its own transaction
+--- group sizes are published as "sqlite.write.batch.size", works waiting for the writer as "sqlite.write.queue.depth"
+ */
+@Component
+public class SqliteWriteQueue {
+    private static final Logger log = LoggerFactory.getLogger(SqliteWriteQueue.class);
+
+    // one queued work and the caller waiting for it
+    private static class Task<T> {
+        final Callable<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        T value;
+
+        Task(Callable<T> work) {
+            this.work = work;
+        }
+
+        void run() {
+            try {
+                value = work.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;  // null when the works are plain JDBC
+    private final boolean grouped;
+    private final int maxBatch;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public SqliteWriteQueue(PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+                            MeterRegistry registry,
+                            @Value("${sqlite.tuned.enabled:false}") boolean grouped,
+                            @Value("${sqlite.write.max-batch:64}") int maxBatch) {
+        this(transactionManager, SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory), registry, grouped, maxBatch);
+    }
+
+    public SqliteWriteQueue(PlatformTransactionManager transactionManager, EntityManager entityManager,
+                            MeterRegistry registry, boolean grouped, int maxBatch) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.grouped = grouped;
+        this.maxBatch = maxBatch;
+        this.batchSizes = DistributionSummary.builder("sqlite.write.batch.size").register(registry);
+        Gauge.builder("sqlite.write.queue.depth", queue, BlockingQueue::size).register(registry);
+        this.writer = new Thread(this::loop, "sqlite-writer");
+        this.writer.setDaemon(true);
+        if (grouped) {
+            this.writer.start();
+        }
+    }
+
+    // Runs work in a write transaction, shared with other queued works; returns its result once committed
+    public <T> T execute(Callable<T> work) {
+        Task<T> task = new Task<>(work);
+        try {
+            if (!grouped || Thread.currentThread() == writer) {  // a work calling execute joins its own transaction
+                transactionTemplate.executeWithoutResult(status -> task.run());
+                return task.value;
+            }
+            if (!running) {
+                throw new IllegalStateException("SQLite write queue is stopped");
+            }
+            queue.add(task);
+            if (!running && queue.remove(task)) {  // stopped while adding, the writer may already be gone
+                throw new IllegalStateException("SQLite write queue is stopped");
+            }
+            return task.result.join();
+        } catch (CompletionException e) {
+            // checked exceptions of the work, or anything thrown on the writer thread
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void loop() {
+        List<Task<?>> batch = new ArrayList<>(maxBatch);
+        try {
+            while (running || !queue.isEmpty()) {
+                Task<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                try {
+                    commit(batch);
+                } finally {
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // nothing takes works from here on, whoever still waits fails instead of hanging
+            running = false;
+            Task<?> task;
+            while ((task = queue.poll()) != null) {
+                task.result.completeExceptionally(new IllegalStateException("SQLite write queue is stopped"));
+            }
+        }
+    }
+
+    private void commit(List<Task<?>> batch) {
+        batchSizes.record(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Task<?> task : batch) {
+                    task.run();
+                    clear();
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            log.debug("Group of {} writes rolled back, retrying one by one", batch.size(), e);
+            for (Task<?> task : batch) {
+                commit(List.of(task));
+            }
+            return;
+        }
+        for (Task<?> task : batch) {
+            complete(task);
+        }
+    }
+
+    private static <T> void complete(Task<T> task) {
+        task.result.complete(task.value);
+    }
+
+    private void clear() {
+        if (entityManager != null) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    // Works queued before shutdown are committed before the datasource closes, later ones fail with IllegalStateException
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (grouped) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+}
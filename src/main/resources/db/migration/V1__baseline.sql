@@ -0,0 +1,17 @@
+-- Tables as Hibernate created them with ddl-auto=update, so databases from before migrations keep working.
+-- "if not exists" makes this a no-op on those databases; Flyway baselines them at version 0 and runs it anyway.
+
+create table if not exists hibernate_sequence (next_val bigint);
+insert into hibernate_sequence (next_val) select 1 where not exists (select 1 from hibernate_sequence);
+
+create table if not exists person (id bigint not null, bmi integer, dob timestamp, email varchar, goal_step integer, name varchar, password varchar, primary key (id));
+
+create table if not exists jokes (id bigint not null, boohoo integer not null, haha integer not null, joke varchar, key_hash varchar, primary key (id));
+
+create table if not exists person_stat (id integer, calories integer, stat_date varchar not null, extra jsonb, goal_status integer, person_id bigint not null, steps integer, primary key (id));
+
+create table if not exists person_stat_rollup (id integer, calories_max integer not null, calories_sum bigint not null, days integer not null, goal_hits integer not null, period varchar not null, period_start varchar not null, person_id bigint not null, steps_max integer not null, steps_sum bigint not null, primary key (id));
+
+create table if not exists covid_daily (id integer, day varchar not null, fetched_at bigint not null, payload text, primary key (id));
+
+create table if not exists covid_country_day (id integer, active_cases double, cases double, country_key varchar not null, country_name varchar, day varchar not null, deaths double, deaths_per_1m_population double, new_cases double, new_deaths double, serious_critical double, tests_per_1m_population double, total_cases_per_1m_population double, total_recovered double, total_tests double, primary key (id));
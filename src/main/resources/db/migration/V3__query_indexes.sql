@@ -0,0 +1,26 @@
+-- One index per repository query shape (checked by QueryPlanTests with EXPLAIN QUERY PLAN).
+-- The unique indexes Hibernate named UK_<hash> are replaced by named ones on the same columns.
+
+-- person: findByEmail, findExistingEmails
+create unique index if not exists ux_person_email on person (email);
+drop index if exists UK_fwmwi44u55bo4rvwsv0cln012;
+-- person: findAllByOrderByNameAsc, findFirstPage, findPageAfter (keyset order name, id)
+create index if not exists ix_person_name_id on person (name, id);
+
+-- jokes: findAllByOrderByJokeAsc, and the unique joke text
+create unique index if not exists ux_jokes_joke on jokes (joke);
+drop index if exists UK_osdppnctl7y6pl9edwd3rev4j;
+-- jokes: seeding finds duplicates by normalized hash (see Seedable)
+create unique index if not exists ux_jokes_key_hash on jokes (key_hash);
+
+-- person_stat: findByPersonIdAndDate, findByPersonIdOrderByDateAsc, ...DateBetween..., deleteByPersonId, upsert
+create unique index if not exists ux_person_stat_person_date on person_stat (person_id, stat_date);
+
+-- person_stat_rollup: findByPersonIdAndPeriodAndPeriodStartBetween..., deleteByPersonId, addDelta, refreshMax
+create unique index if not exists ux_person_stat_rollup_period on person_stat_rollup (person_id, period, period_start);
+
+-- covid_daily: findTopByOrderByDayDesc, upsert by day
+create unique index if not exists ux_covid_daily_day on covid_daily (day);
+
+-- covid_country_day: findByCountryKeyAndDayBetweenOrderByDayAsc, upsert by country and day
+create unique index if not exists ux_covid_country_day_key_day on covid_country_day (country_key, day);
@@ -0,0 +1,46 @@
+-- Full text indexes on person(name, email) for PersonSearchService, kept current by triggers.
+-- person_search: word prefixes, for autocomplete and for search terms shorter than 3 characters.
+-- person_search_trigram: substrings, for search, so "son" finds "Johnson" as LIKE '%son%' did.
+-- Databases that built them at startup before migrations keep theirs; rebuild indexes the people already stored.
+
+create virtual table if not exists person_search using fts5(name, email,
+    content='person', content_rowid='id', prefix='2 3', tokenize='unicode61 remove_diacritics 2');
+
+create trigger if not exists person_search_insert after insert on person begin
+    insert into person_search (rowid, name, email) values (new.id, new.name, new.email);
+end;
+
+create trigger if not exists person_search_delete after delete on person begin
+    insert into person_search (person_search, rowid, name, email) values ('delete', old.id, old.name, old.email);
+end;
+
+create trigger if not exists person_search_update after update of name, email on person begin
+    insert into person_search (person_search, rowid, name, email) values ('delete', old.id, old.name, old.email);
+    insert into person_search (rowid, name, email) values (new.id, new.name, new.email);
+end;
+
+-- "order by rank" is bm25 with name matches weighted above email matches; FTS5 sorts by it without a temp b-tree
+insert into person_search (person_search, rank) values ('rank', 'bm25(10.0, 1.0)');
+
+insert into person_search (person_search) values ('rebuild');
+
+create virtual table if not exists person_search_trigram using fts5(name, email,
+    content='person', content_rowid='id', tokenize='trigram');
+
+create trigger if not exists person_search_trigram_insert after insert on person begin
+    insert into person_search_trigram (rowid, name, email) values (new.id, new.name, new.email);
+end;
+
+create trigger if not exists person_search_trigram_delete after delete on person begin
+    insert into person_search_trigram (person_search_trigram, rowid, name, email) values ('delete', old.id, old.name, old.email);
+end;
+
+create trigger if not exists person_search_trigram_update after update of name, email on person begin
+    insert into person_search_trigram (person_search_trigram, rowid, name, email) values ('delete', old.id, old.name, old.email);
+    insert into person_search_trigram (rowid, name, email) values (new.id, new.name, new.email);
+end;
+
+-- ranked as person_search
+insert into person_search_trigram (person_search_trigram, rank) values ('rank', 'bm25(10.0, 1.0)');
+
+insert into person_search_trigram (person_search_trigram) values ('rebuild');
@@ -1,13 +0,0 @@
-package com.example.nighthawk;
-
-import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
-
-@SpringBootTest
-class NighthawkApplicationTests {
-
-	@Test
-	void contextLoads() {
-	}
-
-}
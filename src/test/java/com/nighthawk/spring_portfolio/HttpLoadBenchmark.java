@@ -0,0 +1,396 @@
+package com.nighthawk.spring_portfolio;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+HttpLoadBenchmark drives the running application over HTTP at fixed arrival rates and fails on a latency regression
+--- starts the application on a random port with a temp SQLite file (ScratchApplication), imports "people" people
+    through POST /api/person/import, then sends requests for "warmup" + "seconds" at "rate" requests per second
+--- open model: request i is due at start + i/rate whether or not earlier ones have answered, latency is measured
+    from when it was due (a stalled server is charged for the queue it causes, no coordinated omission);
+    at most "inflight" requests are outstanding, requests over that are counted as dropped
+--- the mix is "group:weight" over the request templates below (calculator, lights, calendar, person, jokes),
+    or replay=<file> sends the lines of a recorded workload in order, round robin:
+    "METHOD path [json body]", ie "GET /api/calendar/isLeapYear/2024", with {person} and {joke} replaced by stored ids
+--- reports per endpoint (path templates, ids folded to {n}): requests, throughput, non-2xx/failed, HDR p50/p90/p99/p99.9/max
+--- save=<csv> keeps the report; baseline=<csv> compares with an earlier one and exits 1 when an endpoint's p99 grew
+    more than "threshold" percent (and at least "floor" ms, so sub-millisecond noise does not fail), or its error rate passed "errors" percent
+--- mvn test-compile, then run main with the test classpath
+    args, name=value: rate=200 seconds=20 warmup=5 people=1000 inflight=2000
+    mix=calculator:25,lights:10,calendar:10,person:35,jokes:20 replay= save= baseline= threshold=25 floor=2 errors=1
+    extra Spring properties as --name=value, ie --sqlite.tuned.enabled=false
+ */
+public class HttpLoadBenchmark {
+    private static final String PEOPLE_DOMAIN = "@load.test";
+    private static final String[] EXPRESSIONS = { "100 + 210 * 6", "(100 + 34) * 3", "1010.2 - 913.3",
+            "2 POWER 10", "7 * 8 - 6 * 5", "((1 + 2) * (3 + 4) - 5) * 6" };
+    private static final String[] PREFIXES = { "an", "be", "ch", "da", "el", "fa", "gu", "ha", "iv", "ju" };
+
+    // one request to send: endpoint is the reported name, body null for no body
+    static class Call {
+        final String endpoint;
+        final String method;
+        final String path;
+        final String body;
+
+        Call(String endpoint, String method, String path, String body) {
+            this.endpoint = endpoint;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+    }
+
+    // ids the templates pick from
+    static class Ids {
+        final long[] people;
+        final long[] jokes;
+
+        Ids(long[] people, long[] jokes) {
+            this.people = people;
+            this.jokes = jokes;
+        }
+
+        long person(ThreadLocalRandom random) {
+            return people[random.nextInt(people.length)];
+        }
+
+        long joke(ThreadLocalRandom random) {
+            return jokes[random.nextInt(jokes.length)];
+        }
+    }
+
+    // request templates by group, each group picks one of its templates at random
+    private static final Map<String, List<Function<Ids, Call>>> GROUPS = new LinkedHashMap<>();
+
+    static {
+        GROUPS.put("calculator", List.of(ids -> {
+            String expression = EXPRESSIONS[ThreadLocalRandom.current().nextInt(EXPRESSIONS.length)];
+            return new Call("GET /api/calculator/{expression}", "GET",
+                    "/api/calculator/" + URLEncoder.encode(expression, StandardCharsets.UTF_8).replace("+", "%20").replace("%2B", "+"), null);
+        }));
+        GROUPS.put("lights", List.of(
+                ids -> new Call("GET /api/lights/create/{n}/{n}", "GET", "/api/lights/create/5/5", null),
+                ids -> new Call("POST /api/lights/toggleAllOn", "POST", "/api/lights/toggleAllOn", null),
+                ids -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    return new Call("POST /api/lights/toggleLight/{n}/{n}", "POST",
+                            "/api/lights/toggleLight/" + random.nextInt(5) + "/" + random.nextInt(5), null);
+                }));
+        GROUPS.put("calendar", List.of(ids -> new Call("GET /api/calendar/isLeapYear/{n}", "GET",
+                "/api/calendar/isLeapYear/" + (1900 + ThreadLocalRandom.current().nextInt(200)), null)));
+        GROUPS.put("person", List.of(
+                ids -> new Call("GET /api/person/{n}", "GET", "/api/person/" + ids.person(ThreadLocalRandom.current()), null),
+                ids -> new Call("GET /api/person/", "GET", "/api/person/?size=50", null),
+                ids -> new Call("POST /api/person/search", "POST", "/api/person/search",
+                        "{\"term\": \"" + PREFIXES[ThreadLocalRandom.current().nextInt(PREFIXES.length)] + "\", \"limit\": \"20\"}"),
+                ids -> new Call("GET /api/person/autocomplete", "GET",
+                        "/api/person/autocomplete?prefix=" + PREFIXES[ThreadLocalRandom.current().nextInt(PREFIXES.length)], null),
+                ids -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    return new Call("POST /api/person/setStats", "POST", "/api/person/setStats",
+                            String.format("{\"id\": \"%d\", \"date\": \"2022-12-%02d\", \"steps\": %d, \"calories\": %d}",
+                                    ids.person(random), 1 + random.nextInt(28), random.nextInt(20000), random.nextInt(3000)));
+                },
+                ids -> new Call("GET /api/person/{n}/stats", "GET",
+                        "/api/person/" + ids.person(ThreadLocalRandom.current()) + "/stats?from=2022-12-01&to=2022-12-31", null)));
+        GROUPS.put("jokes", List.of(
+                ids -> new Call("GET /api/jokes/", "GET", "/api/jokes/", null),
+                ids -> new Call("GET /api/jokes/top", "GET", "/api/jokes/top?n=10", null),
+                ids -> new Call("GET /api/jokes/random", "GET", "/api/jokes/random", null),
+                ids -> new Call("PUT /api/jokes/like/{n}", "PUT", "/api/jokes/like/" + ids.joke(ThreadLocalRandom.current()), null)));
+    }
+
+    // latencies and failures of one endpoint, recorded from the HTTP client's threads
+    static class Stats {
+        final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(2), 3);
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+    }
+
+    // one endpoint of a saved report
+    static class Row {
+        final long requests;
+        final double throughput;
+        final double errorPercent;
+        final double p99Ms;
+
+        Row(long requests, double throughput, double errorPercent, double p99Ms) {
+            this.requests = requests;
+            this.throughput = throughput;
+            this.errorPercent = errorPercent;
+            this.p99Ms = p99Ms;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("rate", "200");
+        options.put("seconds", "20");
+        options.put("warmup", "5");
+        options.put("people", "1000");
+        options.put("inflight", "2000");
+        options.put("mix", "calculator:25,lights:10,calendar:10,person:35,jokes:20");
+        options.put("replay", "");
+        options.put("save", "");
+        options.put("baseline", "");
+        options.put("threshold", "25");
+        options.put("floor", "2");
+        options.put("errors", "1");
+        List<String> properties = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                properties.add(arg);
+                continue;
+            }
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2 || !options.containsKey(pair[0])) {
+                throw new IllegalArgumentException("unknown argument " + arg + ", expected one of " + options.keySet() + " or --spring.property=value");
+            }
+            options.put(pair[0], pair[1]);
+        }
+        double rate = Double.parseDouble(options.get("rate"));
+        int seconds = Integer.parseInt(options.get("seconds"));
+        int warmup = Integer.parseInt(options.get("warmup"));
+        System.out.println(options + " " + properties);
+
+        File db = ScratchApplication.tempDatabase("http-load");
+        Map<String, Row> report;
+        try (ConfigurableApplicationContext context = ScratchApplication.start(db, properties.toArray(new String[0]))) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            ExecutorService clientThreads = Executors.newFixedThreadPool(4, runnable -> {
+                Thread thread = new Thread(runnable, "load-client");
+                thread.setDaemon(true);
+                return thread;
+            });
+            HttpClient client = HttpClient.newBuilder().executor(clientThreads).connectTimeout(Duration.ofSeconds(5)).build();
+            Ids ids = prepare(client, base, context.getBean(JdbcTemplate.class), Integer.parseInt(options.get("people")));
+            Function<ThreadLocalRandom, Call> next = options.get("replay").isEmpty()
+                    ? mix(options.get("mix"), ids) : replay(Files.readAllLines(Paths.get(options.get("replay"))), ids);
+
+            int limit = Integer.parseInt(options.get("inflight"));
+            Semaphore inflight = new Semaphore(limit);
+            run(client, base, next, rate, warmup, new TreeMap<>(), inflight, limit);  // warm-up, not reported
+            Map<String, Stats> measured = new TreeMap<>();
+            run(client, base, next, rate, seconds, measured, inflight, limit);
+            report = report(measured, seconds);
+            clientThreads.shutdownNow();
+        }
+
+        if (!options.get("save").isEmpty()) {
+            save(report, options.get("save"));
+        }
+        int exit = 0;
+        if (!options.get("baseline").isEmpty()) {
+            exit = compare(load(options.get("baseline")), report, Double.parseDouble(options.get("threshold")),
+                    Double.parseDouble(options.get("floor")), Double.parseDouble(options.get("errors")));
+        }
+        System.exit(exit);
+    }
+
+    // Imports the people over HTTP (as a client would), then reads back the ids the templates use
+    private static Ids prepare(HttpClient client, String base, JdbcTemplate jdbc, int people) throws Exception {
+        String[] first = { "Anna", "Ben", "Chen", "Dara", "Eli", "Fay", "Gus", "Hana", "Ivan", "June" };
+        StringBuilder csv = new StringBuilder("email,password,name,dob,bmi\n");
+        for (int i = 0; i < people; i++) {
+            csv.append("load").append(i).append(PEOPLE_DOMAIN).append(",loadtest,")
+                    .append(first[i % first.length]).append(" Load").append(i).append(",01-15-2000,").append(18 + i % 15).append('\n');
+        }
+        HttpResponse<String> imported = client.send(HttpRequest.newBuilder(URI.create(base + "/api/person/import"))
+                .header("Content-Type", "text/csv").POST(HttpRequest.BodyPublishers.ofString(csv.toString())).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (imported.statusCode() != 200) {
+            throw new IllegalStateException("import failed: " + imported.statusCode() + " " + imported.body());
+        }
+        // the lights board does not exist until it is created
+        client.send(HttpRequest.newBuilder(URI.create(base + "/api/lights/create/5/5")).build(), HttpResponse.BodyHandlers.discarding());
+        long[] personIds = jdbc.queryForList("SELECT id FROM person", Long.class).stream().mapToLong(Long::longValue).toArray();
+        long[] jokeIds = jdbc.queryForList("SELECT id FROM jokes", Long.class).stream().mapToLong(Long::longValue).toArray();
+        if (personIds.length == 0 || jokeIds.length == 0) {
+            throw new IllegalStateException("no people or jokes to load against");
+        }
+        System.out.printf("%d people, %d jokes%n", personIds.length, jokeIds.length);
+        return new Ids(personIds, jokeIds);
+    }
+
+    // "group:weight,..." as a weighted choice of group, then a template of the group
+    private static Function<ThreadLocalRandom, Call> mix(String mix, Ids ids) {
+        List<Function<Ids, Call>> templates = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.split(":");
+            List<Function<Ids, Call>> group = GROUPS.get(pair[0]);
+            if (group == null || pair.length != 2) {
+                throw new IllegalArgumentException("mix entry " + entry + " is not group:weight, groups are " + GROUPS.keySet());
+            }
+            int weight = Integer.parseInt(pair[1]);
+            for (Function<Ids, Call> template : group) {  // the group's weight is shared by its templates
+                total += Math.max(1, weight * 1000 / group.size());
+                templates.add(template);
+                cumulative.add(total);
+            }
+        }
+        int sum = total;
+        return random -> {
+            int pick = random.nextInt(sum);
+            int i = 0;
+            while (cumulative.get(i) <= pick) {
+                i++;
+            }
+            return templates.get(i).apply(ids);
+        };
+    }
+
+    // Recorded lines in order, round robin; ids in paths are folded to {n} for the report
+    private static Function<ThreadLocalRandom, Call> replay(List<String> lines, Ids ids) {
+        List<String[]> calls = lines.stream().map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(line -> line.split(" ", 3)).collect(Collectors.toList());
+        if (calls.isEmpty()) {
+            throw new IllegalArgumentException("replay file has no requests");
+        }
+        AtomicLong position = new AtomicLong();
+        return random -> {
+            String[] call = calls.get((int) (position.getAndIncrement() % calls.size()));
+            String path = call[1].replace("{person}", Long.toString(ids.person(random))).replace("{joke}", Long.toString(ids.joke(random)));
+            String body = call.length > 2 ? call[2].replace("{person}", Long.toString(ids.person(random))) : null;
+            String endpoint = call[0] + " " + call[1].replaceAll("\\?.*", "").replaceAll("/(\\{\\w+}|\\d+)(?=/|$)", "/{n}");
+            return new Call(endpoint, call[0], path, body);
+        };
+    }
+
+    // Sends one request every 1/rate seconds for "seconds", then waits for the outstanding ones
+    private static void run(HttpClient client, String base, Function<ThreadLocalRandom, Call> next, double rate, int seconds,
+                            Map<String, Stats> stats, Semaphore inflight, int limit) throws InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long count = (long) (rate * seconds);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; i < count; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            Call call = next.apply(random);
+            Stats endpoint;
+            synchronized (stats) {
+                endpoint = stats.computeIfAbsent(call.endpoint, name -> new Stats());
+            }
+            if (!inflight.tryAcquire()) {
+                endpoint.dropped.incrementAndGet();
+                continue;
+            }
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + call.path)).timeout(Duration.ofSeconds(30));
+            if (call.body != null) {
+                request.header("Content-Type", "application/json");
+            }
+            request.method(call.method, call.body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(call.body));
+            client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                inflight.release();
+                endpoint.latencies.recordValue(Math.min(System.nanoTime() - due, endpoint.latencies.getHighestTrackableValue()));
+                if (failure != null || response.statusCode() >= 300) {
+                    endpoint.errors.incrementAndGet();
+                }
+            });
+        }
+        inflight.acquire(limit);  // every permit back: every outstanding request has answered
+        inflight.release(limit);
+    }
+
+    private static Map<String, Row> report(Map<String, Stats> stats, int seconds) {
+        System.out.printf("%-38s %8s %9s %7s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "req/s", "errors",
+                "dropped", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Map<String, Row> rows = new TreeMap<>();
+        Stats total = new Stats();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            rows.put(entry.getKey(), print(entry.getKey(), entry.getValue(), seconds));
+            total.latencies.add(entry.getValue().latencies);
+            total.errors.addAndGet(entry.getValue().errors.get());
+            total.dropped.addAndGet(entry.getValue().dropped.get());
+        }
+        rows.put("ALL", print("ALL", total, seconds));
+        return rows;
+    }
+
+    private static Row print(String endpoint, Stats stats, int seconds) {
+        Histogram latencies = stats.latencies;
+        long requests = latencies.getTotalCount() + stats.dropped.get();
+        long failed = stats.errors.get() + stats.dropped.get();
+        Row row = new Row(requests, latencies.getTotalCount() / (double) seconds,
+                requests == 0 ? 0 : 100.0 * failed / requests, millis(latencies.getValueAtPercentile(99)));
+        System.out.printf("%-38s %8d %9.1f %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint, requests, row.throughput,
+                stats.errors.get(), stats.dropped.get(), millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                row.p99Ms, millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()));
+        return row;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void save(Map<String, Row> report, String file) throws Exception {
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("endpoint,requests,throughput,error_percent,p99_ms");
+            report.forEach((endpoint, row) -> out.printf("%s,%d,%.2f,%.3f,%.3f%n",
+                    endpoint, row.requests, row.throughput, row.errorPercent, row.p99Ms));
+        }
+    }
+
+    private static Map<String, Row> load(String file) throws Exception {
+        Map<String, Row> rows = new TreeMap<>();
+        List<String> lines = Files.readAllLines(Paths.get(file));
+        for (String line : lines.subList(1, lines.size())) {  // after the header
+            String[] fields = line.split(",");
+            rows.put(fields[0], new Row(Long.parseLong(fields[1]), Double.parseDouble(fields[2]),
+                    Double.parseDouble(fields[3]), Double.parseDouble(fields[4])));
+        }
+        return rows;
+    }
+
+    // Returns 1 when any endpoint in both reports regressed
+    private static int compare(Map<String, Row> baseline, Map<String, Row> current, double threshold, double floorMs, double maxErrors) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Row> entry : current.entrySet()) {
+            Row before = baseline.get(entry.getKey());
+            Row now = entry.getValue();
+            if (before != null && now.p99Ms > before.p99Ms * (1 + threshold / 100) && now.p99Ms - before.p99Ms >= floorMs) {
+                regressions.add(String.format("%s p99 %.2f ms, was %.2f ms", entry.getKey(), now.p99Ms, before.p99Ms));
+            }
+            if (now.errorPercent > maxErrors) {
+                regressions.add(String.format("%s %.2f%% errors", entry.getKey(), now.errorPercent));
+            }
+        }
+        regressions.forEach(regression -> System.out.println("REGRESSION  " + regression));
+        System.out.println(regressions.isEmpty() ? "no regression against the baseline" : regressions.size() + " regressions");
+        return regressions.isEmpty() ? 0 : 1;
+    }
+}
@@ -0,0 +1,29 @@
+package com.nighthawk.spring_portfolio;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+@SpringBootTest
+class NighthawkApplicationTests {
+
+	// the context starts on a throwaway database, never on volumes/sqlite.db
+	@DynamicPropertySource
+	static void scratchDatabase(DynamicPropertyRegistry registry) throws IOException {
+		File db = ScratchApplication.tempDatabase("context-loads");
+		registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + db.getAbsolutePath());
+		for (String property : ScratchApplication.DEFAULTS) {
+			String[] pair = property.split("=", 2);
+			registry.add(pair[0], () -> pair[1]);
+		}
+	}
+
+	@Test
+	void contextLoads() {
+	}
+
+}
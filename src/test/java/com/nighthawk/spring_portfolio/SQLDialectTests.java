@@ -0,0 +1,121 @@
+package com.nighthawk.spring_portfolio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nighthawk.spring_portfolio.mvc.person.PersonStat;
+
+// identity, JSON functions and upsert SQL of SQLDialect against the bundled sqlite-jdbc
+@SpringBootTest
+class SQLDialectTests {
+
+    @DynamicPropertySource
+    static void scratchDatabase(DynamicPropertyRegistry registry) throws IOException {
+        File db = ScratchApplication.tempDatabase("sql-dialect");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + db.getAbsolutePath());
+        for (String property : ScratchApplication.DEFAULTS) {
+            String[] pair = property.split("=", 2);
+            registry.add(pair[0], () -> pair[1]);
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    // inserts go through "insert ... returning rowid" (use_get_generated_keys=false), the id must come back on the entity
+    @Test
+    void persistAssignsIdentityFromReturningRowid() {
+        PersonStat first = persist(1L, "2026-01-01", 72);
+        PersonStat second = persist(1L, "2026-01-02", 80);
+
+        assertNotNull(first.getId());
+        assertNotNull(second.getId());
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals("2026-01-02",
+                jdbc.queryForObject("select stat_date from person_stat where id = ?", String.class, second.getId()));
+    }
+
+    @Test
+    void jsonExtractInJpql() {
+        PersonStat stat = persist(2L, "2026-02-01", 64);
+
+        List<String> heartRates = entityManager
+                .createQuery("select json_extract(s.extra, '$.heartRate') from PersonStat s where s.id = :id", String.class)
+                .setParameter("id", stat.getId())
+                .getResultList();
+        assertEquals(List.of("64"), heartRates);
+
+        List<Long> ids = entityManager
+                .createQuery("select s.id from PersonStat s where s.personId = 2 and json_extract(s.extra, '$.heartRate') > 60", Long.class)
+                .getResultList();
+        assertEquals(List.of(stat.getId()), ids);
+    }
+
+    @Test
+    void jsonSetInJpql() {
+        PersonStat stat = persist(3L, "2026-03-01", 58);
+
+        String json = entityManager
+                .createQuery("select json_set(s.extra, '$.sleep', 8) from PersonStat s where s.id = :id", String.class)
+                .setParameter("id", stat.getId())
+                .getSingleResult();
+        assertTrue(json.contains("\"heartRate\":58"), json);
+        assertTrue(json.contains("\"sleep\":8"), json);
+    }
+
+    @Test
+    void upsertWithUpdateColumns() {
+        String sql = SQLDialect.upsert("covid_daily", List.of("day", "fetched_at", "payload"), List.of("day"),
+                List.of("fetched_at", "payload"));
+        assertEquals("INSERT INTO covid_daily (day, fetched_at, payload) VALUES (?, ?, ?) ON CONFLICT (day)"
+                + " DO UPDATE SET fetched_at = excluded.fetched_at, payload = excluded.payload", sql);
+
+        jdbc.update(sql, "2026-04-01", 1L, "first");
+        jdbc.update(sql, "2026-04-01", 2L, "second");
+        assertEquals("second", jdbc.queryForObject("select payload from covid_daily where day = '2026-04-01'", String.class));
+    }
+
+    @Test
+    void upsertWithoutUpdateColumnsDoesNothing() {
+        String sql = SQLDialect.upsert("covid_daily", List.of("day", "fetched_at", "payload"), List.of("day"), List.of());
+        assertEquals("INSERT INTO covid_daily (day, fetched_at, payload) VALUES (?, ?, ?) ON CONFLICT (day) DO NOTHING", sql);
+
+        assertEquals(1, jdbc.update(sql, "2026-05-01", 1L, "first"));
+        assertEquals(0, jdbc.update(sql, "2026-05-01", 2L, "second"));
+        assertEquals("first", jdbc.queryForObject("select payload from covid_daily where day = '2026-05-01'", String.class));
+    }
+
+    private PersonStat persist(Long personId, String date, int heartRate) {
+        PersonStat stat = new PersonStat();
+        stat.setPersonId(personId);
+        stat.setDate(date);
+        stat.setSteps(1000);
+        stat.getExtra().put("heartRate", heartRate);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager.persist(stat));
+        return stat;
+    }
+}
@@ -0,0 +1,49 @@
+package com.nighthawk.spring_portfolio;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ScratchApplication starts the whole application on a throwaway SQLite file, for checks and benchmarks run from main
+--- the schema comes from the Flyway migrations, as in production
+--- no devtools restart, no banner, a random HTTP port, COVID upstream pointed at a closed port
+--- Hibernate validates the schema against the mappings (ddl-auto=validate), as in production
+--- extra arguments are Spring properties ("--name=value") and override the defaults above
+ */
+public class ScratchApplication {
+    // name=value, the datasource url is added per database
+    public static final List<String> DEFAULTS = List.of(
+            "server.port=0",
+            "covid.api.url=http://localhost:1/api",
+            "sqlite.backup.cron=-",
+            "spring.main.banner-mode=off");
+
+    // A temp file deleted on exit, with its WAL and shared memory files
+    public static File tempDatabase(String prefix) throws IOException {
+        File db = File.createTempFile(prefix, ".db");
+        db.deleteOnExit();
+        new File(db.getPath() + "-wal").deleteOnExit();
+        new File(db.getPath() + "-shm").deleteOnExit();
+        return db;
+    }
+
+    public static ConfigurableApplicationContext start(File db, String... properties) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>();
+        args.add("--spring.datasource.url=jdbc:sqlite:" + db.getAbsolutePath());
+        for (String property : DEFAULTS) {  // a repeated option would be joined with a comma, not overridden
+            String key = "--" + property.substring(0, property.indexOf('=') + 1);
+            if (Arrays.stream(properties).noneMatch(given -> given.startsWith(key))) {
+                args.add("--" + property);
+            }
+        }
+        args.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(Main.class).run(args.toArray(new String[0]));
+    }
+}
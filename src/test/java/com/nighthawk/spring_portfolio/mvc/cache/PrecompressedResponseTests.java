@@ -0,0 +1,44 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+class PrecompressedResponseTests {
+    private static final String JSON = MediaType.APPLICATION_JSON_VALUE;
+
+    @Test
+    void compressibleBodyKeepsBothEncodingsWithTheirOwnTags() throws Exception {
+        byte[] body = "{\"joke\":\"Computers make very fast, very accurate mistakes.\"}".repeat(20).getBytes(StandardCharsets.UTF_8);
+        PrecompressedResponse response = new PrecompressedResponse(7, body, JSON, 256);
+
+        assertEquals(7, response.getVersion());
+        assertSame(body, response.getIdentity().getBody());  // stored as given, not copied
+        assertTrue(response.getGzip().getBody().length < body.length);
+        assertArrayEquals(body, VersionedResponseCacheTests.gunzip(response.getGzip().getBody()));
+        assertNotEquals(response.getIdentity().getEtag(), response.getGzip().getEtag());
+        assertEquals(new CachedResponse(body, JSON).getEtag(), response.getIdentity().getEtag());
+    }
+
+    @Test
+    void smallBodyIsNotCompressed() {
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        assertNull(new PrecompressedResponse(1, body, JSON, 256).getGzip());
+    }
+
+    @Test
+    void bodyThatGzipCanNotShrinkIsNotCompressed() {
+        byte[] body = new byte[4096];
+        new Random(42).nextBytes(body);
+        assertNull(new PrecompressedResponse(1, body, JSON, 256).getGzip());
+    }
+}
@@ -0,0 +1,137 @@
+package com.nighthawk.spring_portfolio.mvc.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VersionedResponseCacheTests {
+    private static final String ENDPOINT = "test";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final VersionedResponseCache cache = new VersionedResponseCache(new ObjectMapper(), registry, 256);
+
+    @Test
+    void acceptsFollowsQValuesAndWildcard() {
+        assertTrue(VersionedResponseCache.accepts("gzip", "gzip"));
+        assertTrue(VersionedResponseCache.accepts("deflate, GZIP;q=0.5", "gzip"));
+        assertFalse(VersionedResponseCache.accepts(null, "gzip"));
+        assertFalse(VersionedResponseCache.accepts("deflate, br", "gzip"));
+        assertFalse(VersionedResponseCache.accepts("gzip;q=0", "gzip"));
+        assertFalse(VersionedResponseCache.accepts("gzip; q=0.000", "gzip"));
+        assertFalse(VersionedResponseCache.accepts("gzip;q=abc", "gzip"));
+        assertTrue(VersionedResponseCache.accepts("*", "gzip"));
+        assertFalse(VersionedResponseCache.accepts("*;q=0", "gzip"));
+        // an explicit entry wins over the wildcard, whichever comes first
+        assertFalse(VersionedResponseCache.accepts("*, gzip;q=0", "gzip"));
+        assertFalse(VersionedResponseCache.accepts("gzip;q=0, *", "gzip"));
+        assertTrue(VersionedResponseCache.accepts("*;q=0, gzip", "gzip"));
+    }
+
+    @Test
+    void bodyIsGzippedOnlyWhenAccepted() throws IOException {
+        ResponseEntity<byte[]> gzipped = serve(1, () -> json(1), "gzip, deflate", null);
+        assertEquals(HttpStatus.OK, gzipped.getStatusCode());
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, gzipped.getHeaders().getFirst(HttpHeaders.VARY));
+        assertArrayEquals(json(1), gunzip(gzipped.getBody()));
+
+        ResponseEntity<byte[]> plain = serve(1, () -> json(1), "gzip;q=0", null);
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, plain.getHeaders().getFirst(HttpHeaders.VARY));
+        assertArrayEquals(json(1), plain.getBody());
+        assertNotEquals(gzipped.getHeaders().getETag(), plain.getHeaders().getETag());
+    }
+
+    @Test
+    void ifNoneMatchIsNotModifiedForTheSameEncodingOnly() {
+        String gzipTag = serve(1, () -> json(1), "gzip", null).getHeaders().getETag();
+        String identityTag = serve(1, () -> json(1), null, null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> gzip = serve(1, () -> json(1), "gzip", gzipTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, gzip.getStatusCode());
+        assertEquals(gzipTag, gzip.getHeaders().getETag());
+        assertNull(gzip.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, serve(1, () -> json(1), null, identityTag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, serve(1, () -> json(1), "gzip", "\"other\", W/" + gzipTag).getStatusCode());
+
+        // the other encoding's tag is a different representation
+        assertEquals(HttpStatus.OK, serve(1, () -> json(1), null, gzipTag).getStatusCode());
+        assertEquals(HttpStatus.OK, serve(1, () -> json(1), "gzip", identityTag).getStatusCode());
+        // a new version has new bytes, the old tag no longer matches
+        assertEquals(HttpStatus.OK, serve(2, () -> json(2), "gzip", gzipTag).getStatusCode());
+        assertEquals(3.0, registry.get("http.response.cache.requests").tag("result", "not_modified").counter().count());
+    }
+
+    @Test
+    void aVersionIsSerializedOnceAndAnOlderOneNeverReplacesANewer() {
+        AtomicInteger builds = new AtomicInteger();
+        serve(2, counted(builds, 2), null, null);
+        serve(2, counted(builds, 2), null, null);
+        assertEquals(1, builds.get());
+
+        // a caller still holding version 1 gets version 2, version 1 is not serialized
+        ResponseEntity<byte[]> older = serve(1, counted(builds, 1), null, null);
+        assertArrayEquals(json(2), older.getBody());
+        assertEquals(1, builds.get());
+
+        ResponseEntity<byte[]> newer = serve(3, counted(builds, 3), null, null);
+        assertArrayEquals(json(3), newer.getBody());
+        assertEquals(2, builds.get());
+        assertEquals(2.0, registry.get("http.response.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(2.0, registry.get("http.response.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    private ResponseEntity<byte[]> serve(long version, Supplier<byte[]> body, String acceptEncoding, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return cache.serve(ENDPOINT, version, body, request);
+    }
+
+    private static Supplier<byte[]> counted(AtomicInteger builds, long version) {
+        return () -> {
+            builds.incrementAndGet();
+            return json(version);
+        };
+    }
+
+    // a JSON list well over the 256 byte gzip threshold, different per version
+    private static byte[] json(long version) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"version\":").append(version).append('}');
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        }
+    }
+}
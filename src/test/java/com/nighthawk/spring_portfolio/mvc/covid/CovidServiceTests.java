@@ -0,0 +1,115 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+// CovidService against CovidStubServer; the store has no database, so snapshots are not kept (logged, as in production)
+class CovidServiceTests {
+    private static final long DELAY_MS = 300;
+
+    private CovidStubServer upstream;
+    private CovidService service;
+
+    @BeforeEach
+    void startUpstream() throws Exception {
+        upstream = new CovidStubServer(0, DELAY_MS, 5);
+        upstream.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (service != null) {
+            service.stop();
+        }
+        upstream.stop();
+    }
+
+    private CovidService service(long refreshAfterSeconds, long retrySeconds) {
+        service = new CovidService(new CovidStore(), upstream.getUrl(), "key", "host", 2000, 5000, refreshAfterSeconds, retrySeconds);
+        return service;
+    }
+
+    @Test
+    void concurrentColdCallsShareOneUpstreamCall() throws Exception {
+        CovidService covid = service(86400, 60);
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CovidService.Snapshot>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return covid.get();
+            }));
+        }
+        start.countDown();
+
+        CovidService.Snapshot first = results.get(0).get(10, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.OK, first.getStatus());
+        for (Future<CovidService.Snapshot> result : results) {
+            assertSame(first, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, upstream.getHits());
+        assertEquals(5, first.getCountries().size());
+        executor.shutdown();
+    }
+
+    @Test
+    void staleDataIsServedWhileTheRefreshRuns() throws Exception {
+        CovidService covid = service(0, 60);  // every snapshot is stale at once
+        CovidService.Snapshot cold = covid.get();
+        assertEquals(1, cold.getVersion());
+
+        long started = System.nanoTime();
+        CovidService.Snapshot stale = covid.get();
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertSame(cold, stale);
+        assertTrue(waitedMs < DELAY_MS, "waited " + waitedMs + " ms for upstream");
+
+        CovidService.Snapshot refreshed = covid.refresh().get(10, TimeUnit.SECONDS);  // the refresh get() started
+        assertEquals(2, refreshed.getVersion());
+        assertEquals(2, upstream.getHits());
+    }
+
+    @Test
+    void aFailureIsAnsweredForRetrySeconds() throws Exception {
+        upstream.setStatus(500);
+        CovidService covid = service(86400, 60);
+
+        CovidService.Snapshot failed = covid.get();
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatus());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, covid.get().getStatus());
+        }
+        assertEquals(1, upstream.getHits());
+    }
+
+    @Test
+    void aRejectedRefreshDoesNotLeaveAFetchInFlight() {
+        CovidService covid = service(86400, 60);
+        covid.stop();
+
+        for (int i = 0; i < 2; i++) {  // the second would get the first's future if it stayed in flight
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> covid.refresh().get(1, TimeUnit.SECONDS));
+            assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, upstream.getHits());
+    }
+}
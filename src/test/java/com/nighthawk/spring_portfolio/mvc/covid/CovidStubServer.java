@@ -0,0 +1,114 @@
+package com.nighthawk.spring_portfolio.mvc.covid;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+
+/*
+CovidStubServer stands in for the RapidAPI COVID upstream, so the proxy can be tried offline
+--- serves GET /api with a payload in the upstream's shape (countries_stat, world_total, statistic_taken_at)
+--- every response waits "delayMs" first, to make upstream latency visible
+--- hits are counted, single flight shows up as one hit per refresh however many clients ask (see CovidServiceTests)
+--- setStatus(500) makes it answer an outage, with an error body
+--- port 0 picks a free port, see getUrl()
+--- run: java ... CovidStubServer [port=8098] [delayMs=2000] [countries=220]
+    then start the app with --covid.api.url=http://localhost:8098/api
+ */
+public class CovidStubServer {
+    private final HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int status = 200;
+
+    public CovidStubServer(int port, long delayMs, int countries) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api", exchange -> {
+            int hit = hits.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int answer = status;
+            byte[] body = (answer == 200 ? payload(countries, hit) : "{\"message\":\"upstream down\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(answer, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api";
+    }
+
+    // Upstream numbers are strings with thousands separators, ie "1,234,567"
+    public static String payload(int countries, int seed) {
+        StringBuilder json = new StringBuilder("{\"countries_stat\":[");
+        for (int i = 0; i < countries; i++) {
+            long cases = 1000L * (countries - i) * (seed + 10);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"country_name\":\"").append(i == 0 ? "USA" : i == 1 ? "India" : "Country " + i).append('"')
+                .append(",\"cases\":\"").append(String.format("%,d", cases)).append('"')
+                .append(",\"deaths\":\"").append(String.format("%,d", cases / 80)).append('"')
+                .append(",\"region\":\"\"")
+                .append(",\"total_recovered\":\"").append(String.format("%,d", cases * 9 / 10)).append('"')
+                .append(",\"new_deaths\":\"").append(String.format("%,d", i % 7)).append('"')
+                .append(",\"new_cases\":\"").append(String.format("%,d", (i * 37) % 1000)).append('"')
+                .append(",\"serious_critical\":\"").append(String.format("%,d", cases / 1000)).append('"')
+                .append(",\"active_cases\":\"").append(String.format("%,d", cases / 12)).append('"')
+                .append(",\"total_cases_per_1m_population\":\"").append(String.format("%,d", cases / 100)).append('"')
+                .append(",\"deaths_per_1m_population\":\"").append(String.format("%,d", cases / 8000)).append('"')
+                .append(",\"total_tests\":\"").append(String.format("%,d", cases * 10)).append('"')
+                .append(",\"tests_per_1m_population\":\"").append(String.format("%,d", cases / 10)).append('"')
+                .append('}');
+        }
+        json.append("],\"statistic_taken_at\":\"").append(LocalDateTime.now().withNano(0).toString().replace('T', ' ')).append('"')
+            .append(",\"world_total\":{\"total_cases\":\"").append(String.format("%,d", 500_000_000L + seed)).append('"')
+            .append(",\"new_cases\":\"").append(String.format("%,d", 100_000 + seed)).append('"')
+            .append(",\"total_deaths\":\"").append(String.format("%,d", 6_000_000 + seed)).append('"')
+            .append(",\"new_deaths\":\"").append(String.format("%,d", 1_000 + seed)).append('"')
+            .append(",\"total_recovered\":\"").append(String.format("%,d", 450_000_000L + seed)).append('"')
+            .append(",\"active_cases\":\"").append(String.format("%,d", 44_000_000 + seed)).append('"')
+            .append(",\"serious_critical\":\"").append(String.format("%,d", 40_000 + seed)).append('"')
+            .append(",\"total_cases_per_1m_population\":\"").append(String.format("%,d", 64_000)).append('"')
+            .append(",\"deaths_per_1m_population\":\"").append(String.format("%,d", 800)).append('"')
+            .append(",\"statistic_taken_at\":\"").append(LocalDateTime.now().withNano(0).toString().replace('T', ' ')).append('"')
+            .append("}}");
+        return json.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8098;
+        long delayMs = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        int countries = args.length > 2 ? Integer.parseInt(args[2]) : 220;
+        CovidStubServer stub = new CovidStubServer(port, delayMs, countries);
+        stub.start();
+        System.out.println("COVID stub upstream on " + stub.getUrl() + ", delay " + delayMs + " ms");
+    }
+}
@@ -0,0 +1,118 @@
+package com.nighthawk.spring_portfolio.mvc.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// execution.model=bulkhead with one group of a single thread and a single queued call, served by ProbeController
+@SpringBootTest(properties = {
+        "execution.model=bulkhead",
+        "execution.bulkhead.groups=probe",
+        "execution.bulkhead.probe.paths=/probe/**",
+        "execution.bulkhead.probe.exclude=/probe/excluded/**",
+        "execution.bulkhead.probe.threads=1",
+        "execution.bulkhead.probe.queue=1" })
+@AutoConfigureMockMvc
+@Import(BulkheadHandlerAdapterTests.ProbeController.class)
+class BulkheadHandlerAdapterTests {
+
+    @DynamicPropertySource
+    static void scratchDatabase(DynamicPropertyRegistry registry) throws IOException {
+        File db = ScratchApplication.tempDatabase("bulkhead");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + db.getAbsolutePath());
+        for (String property : ScratchApplication.DEFAULTS) {
+            String[] pair = property.split("=", 2);
+            registry.add(pair[0], () -> pair[1]);
+        }
+    }
+
+    @RestController
+    static class ProbeController {
+        volatile CountDownLatch release = new CountDownLatch(0);
+
+        @GetMapping({ "/probe/thread", "/probe/excluded/thread" })
+        public String thread() {
+            return Thread.currentThread().getName();
+        }
+
+        @GetMapping("/probe/block")
+        public String block() throws InterruptedException {
+            return release.await(30, TimeUnit.SECONDS) ? "released" : "timed out";
+        }
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ProbeController probe;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void aGroupedCallRunsOnTheGroupsPool() throws Exception {
+        MvcResult started = mvc.perform(get("/probe/thread")).andExpect(request().asyncStarted()).andReturn();
+
+        String thread = mvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertTrue(thread.startsWith("bulkhead-probe-"), thread);
+    }
+
+    @Test
+    void anExcludedPathStaysOnTheContainerThread() throws Exception {
+        mvc.perform(get("/probe/excluded/thread"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(content().string(Thread.currentThread().getName()));  // MockMvc dispatches on the caller's thread
+    }
+
+    @Test
+    void aFullQueueIsAnswered503WithRetryAfter() throws Exception {
+        double rejected = rejections();
+        probe.release = new CountDownLatch(1);
+        MvcResult running = mvc.perform(get("/probe/block")).andExpect(request().asyncStarted()).andReturn();
+        MvcResult queued = mvc.perform(get("/probe/block")).andExpect(request().asyncStarted()).andReturn();
+
+        mvc.perform(get("/probe/block"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        assertEquals(rejected + 1, rejections());
+
+        probe.release.countDown();
+        mvc.perform(asyncDispatch(running)).andExpect(status().isOk()).andExpect(content().string("released"));
+        mvc.perform(asyncDispatch(queued)).andExpect(status().isOk()).andExpect(content().string("released"));
+        assertEquals(rejected + 1, rejections());
+    }
+
+    private double rejections() {
+        return registry.get("http.bulkhead.rejections").tag("group", "probe").tag("reason", "full").counter().count();
+    }
+}
@@ -0,0 +1,237 @@
+package com.nighthawk.spring_portfolio.mvc.execution;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ExecutionModelBenchmark shows whether cheap endpoints keep their latency while a slow endpoint group is saturated, per execution.model
+--- every model runs in a JVM of its own (same classpath): the application on a temp SQLite file, Tomcat capped at
+    "tomcat" request threads, COVID upstream pointed at a local stub that answers 503 after "delay" ms, so every
+    /api/covid/daily call holds its thread that long (nothing gets cached)
+--- cheap load: calculator and leap year with fresh arguments (past the response cache), open model at "rate"
+    requests per second, latency measured from when each request was due; first "warmup" seconds alone (not measured),
+    then "seconds" alone (idle), then "seconds" more while "slow" clients call /api/covid/daily back to back (saturated),
+    a client that gets 503 waits as Retry-After says (1 s when absent) before trying again
+--- reports cheap p50/p99/max and errors per phase, the COVID calls answered and turned away (503),
+    and the server's http.bulkhead.rejections
+--- a model keeps its latency when the saturated p99 is within "factor" times the idle p99 plus "floor" ms;
+    platform is the control and is expected to lose it, the run exits 1 when another model does
+--- virtual needs Java 21: java=<path to its bin/java> runs the children on it, else virtual is reported as skipped
+--- mvn test-compile, then run main with the test classpath
+    args, name=value: models=platform,bulkhead,virtual seconds=15 warmup=10 rate=40 slow=64 delay=3000 tomcat=16 factor=3 floor=50 java=
+ */
+public class ExecutionModelBenchmark {
+    private static final String RESULT = "RESULT ";
+    private static final String SKIPPED = "SKIPPED ";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {  // a child JVM: run <model> <options as name=value>...
+            Map<String, String> options = options(args, 2);
+            run(args[1], options);
+            System.exit(0);
+        }
+        Map<String, String> options = options(args, 0);
+        String java = options.getOrDefault("java", Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        double factor = Double.parseDouble(options.getOrDefault("factor", "3"));
+        double floor = Double.parseDouble(options.getOrDefault("floor", "50"));
+        System.out.printf("%s rate %s/s, %s slow clients, upstream delay %s ms, %s Tomcat threads, %s s per phase%n", java,
+                options.getOrDefault("rate", "40"), options.getOrDefault("slow", "64"), options.getOrDefault("delay", "3000"),
+                options.getOrDefault("tomcat", "16"), options.getOrDefault("seconds", "15"));
+        System.out.printf("%-9s %-10s %8s %9s %9s %9s %7s %9s %8s %8s%n",
+                "model", "phase", "cheap", "p50 ms", "p99 ms", "max ms", "errors", "covid ok", "503", "server");
+
+        int failed = 0;
+        for (String model : options.getOrDefault("models", "platform,bulkhead,virtual").split(",")) {
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                    ExecutionModelBenchmark.class.getName(), "run", model));
+            options.forEach((name, value) -> command.add(name + "=" + value));
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String[] result = null;
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    if (line.startsWith(RESULT)) {
+                        result = line.substring(RESULT.length()).split(" ");
+                    } else if (line.startsWith(SKIPPED)) {
+                        System.out.printf("%-9s skipped, %s%n", model, line.substring(SKIPPED.length()));
+                    }
+                }
+            }
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException(model + " run failed, exit code " + process.exitValue());
+            }
+            if (result == null) {
+                continue;
+            }
+            // idle p50 p99 max cheap errors, saturated p50 p99 max cheap errors, covid answered, turned away, server rejections
+            System.out.printf("%-9s %-10s %8s %9s %9s %9s %7s%n", model, "idle", result[3], result[0], result[1], result[2], result[4]);
+            System.out.printf("%-9s %-10s %8s %9s %9s %9s %7s %9s %8s %8s%n", model, "saturated", result[8], result[5], result[6],
+                    result[7], result[9], result[10], result[11], result[12]);
+            double idle = Double.parseDouble(result[1]);
+            double saturated = Double.parseDouble(result[6]);
+            boolean kept = saturated <= idle * factor + floor;
+            System.out.printf("%-9s cheap p99 %.1f -> %.1f ms, %s%n", model, idle, saturated,
+                    kept ? "kept" : "lost" + (model.equals("platform") ? " (expected, the control)" : ""));
+            if (!kept && !model.equals("platform")) {
+                failed++;
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static Map<String, String> options(String[] args, int from) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = from; i < args.length; i++) {
+            String[] pair = args[i].split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        return options;
+    }
+
+    private static void run(String model, Map<String, String> options) throws Exception {
+        if (model.equals("virtual") && Runtime.version().feature() < 21) {
+            System.out.println(SKIPPED + "Java " + Runtime.version().feature() + " has no virtual threads, give java=<Java 21+ bin/java>");
+            return;
+        }
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "15"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "40"));
+        int slow = Integer.parseInt(options.getOrDefault("slow", "64"));
+        long delay = Long.parseLong(options.getOrDefault("delay", "3000"));
+
+        // COVID upstream that is slow and never succeeds, so every call waits for it
+        HttpServer upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.setExecutor(Executors.newCachedThreadPool());
+        upstream.createContext("/", exchange -> {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        upstream.start();
+
+        File db = ScratchApplication.tempDatabase("execution-" + model);
+        try (ConfigurableApplicationContext context = ScratchApplication.start(db, "--execution.model=" + model,
+                "--server.tomcat.threads.max=" + options.getOrDefault("tomcat", "16"),
+                "--covid.api.url=http://localhost:" + upstream.getAddress().getPort() + "/api")) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            AtomicLong unique = new AtomicLong();
+
+            cheap(client, base, unique, rate, warmup);  // JIT, pools, connections
+            Phase idle = cheap(client, base, unique, rate, seconds);
+
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicLong answered = new AtomicLong();
+            AtomicLong turnedAway = new AtomicLong();
+            HttpClient slowClient = HttpClient.newHttpClient();
+            HttpRequest covid = HttpRequest.newBuilder(URI.create(base + "/api/covid/daily")).timeout(Duration.ofSeconds(60)).build();
+            List<Thread> clients = new ArrayList<>();
+            for (int i = 0; i < slow; i++) {
+                Thread thread = new Thread(() -> {
+                    while (!stop.get()) {
+                        try {
+                            HttpResponse<Void> response = slowClient.send(covid, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 503) {
+                                turnedAway.incrementAndGet();
+                                Thread.sleep(1000 * response.headers().firstValueAsLong("Retry-After").orElse(1));
+                            } else {
+                                answered.incrementAndGet();
+                            }
+                        } catch (InterruptedException e) {
+                            return;
+                        } catch (Exception e) {
+                            turnedAway.incrementAndGet();
+                        }
+                    }
+                }, "slow-client-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                clients.add(thread);
+            }
+            Thread.sleep(Math.min(delay, 5000));  // every slow client has a call out
+            Phase saturated = cheap(client, base, unique, rate, seconds);
+            stop.set(true);
+
+            long rejections = 0;
+            HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(URI.create(base + "/actuator/prometheus")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            for (String line : metrics.body().split("\n")) {
+                if (line.startsWith("http_bulkhead_rejections_total")) {
+                    rejections += (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+                }
+            }
+            System.out.printf("%s%s %s %d %d %d%n", RESULT, idle, saturated, answered.get(), turnedAway.get(), rejections);
+            for (Thread thread : clients) {
+                thread.interrupt();
+            }
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    // cheap requests of one phase
+    static class Phase {
+        final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+        final AtomicLong errors = new AtomicLong();
+
+        @Override
+        public String toString() {  // p50 p99 max in ms, requests, errors
+            return String.format("%.2f %.2f %.2f %d %d", latencies.getValueAtPercentile(50) / 1e6,
+                    latencies.getValueAtPercentile(99) / 1e6, latencies.getMaxValue() / 1e6, latencies.getTotalCount(), errors.get());
+        }
+    }
+
+    // Sends calculator and leap year requests at a fixed rate for the given seconds, waits for the answers
+    private static Phase cheap(HttpClient client, String base, AtomicLong unique, double rate, int seconds) throws Exception {
+        Phase phase = new Phase();
+        List<CompletableFuture<?>> sent = new ArrayList<>();
+        long start = System.nanoTime();
+        long count = (long) (rate * seconds);
+        for (long i = 0; i < count; i++) {
+            long due = start + (long) (i * 1e9 / rate);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            String path = i % 2 == 0 ? "/api/calculator/(" + unique.incrementAndGet() + "%20+%2034)%20*%203"
+                    : "/api/calendar/isLeapYear/" + unique.incrementAndGet();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(50)).build();
+            sent.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                phase.latencies.recordValue(Math.min(System.nanoTime() - due, phase.latencies.getHighestTrackableValue()));
+                if (error != null || response.statusCode() >= 300) {
+                    phase.errors.incrementAndGet();
+                }
+            }).handle((response, error) -> null));
+        }
+        CompletableFuture.allOf(sent.toArray(new CompletableFuture[0])).get(2, TimeUnit.MINUTES);
+        return phase;
+    }
+}
@@ -0,0 +1,132 @@
+package com.nighthawk.spring_portfolio.mvc.jokes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.Test;
+
+class JokesRankingTests {
+    private static final int STARTING = 100;  // added before the votes
+    private static final int ADDED = 100;  // added while votes are counted
+
+    private final JokesRanking ranking = new JokesRanking();
+    private final Map<Long, JokesVoteService.Entry> entries = new ConcurrentHashMap<>();
+
+    @Test
+    void topOrdersByCountThenLowerId() {
+        add(1, 5, 0);
+        add(2, 7, 1);
+        add(3, 5, 9);
+
+        assertEquals(List.of(2L, 1L, 3L), ids(ranking.top(JokesRanking.By.HAHA, 10)));
+        assertEquals(List.of(3L, 2L), ids(ranking.top(JokesRanking.By.BOOHOO, 2)));
+
+        vote(1, true);
+        vote(1, true);
+        vote(1, true);
+        assertEquals(List.of(1L, 2L, 3L), ids(ranking.top(JokesRanking.By.HAHA, 10)));
+        assertEquals(8, ranking.top(JokesRanking.By.HAHA, 1).get(0).getHaha());
+    }
+
+    @Test
+    void concurrentVotesKeepRankingsInStepWithLiveCounts() throws Exception {
+        for (long id = 1; id <= STARTING; id++) {
+            add(id, 0, 0);
+        }
+        int voters = 8;
+        int votes = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(voters + 2);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < voters; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < votes; i++) {
+                    // a few jokes take most votes, so moves of the same joke overlap
+                    long id = random.nextInt(4) == 0 ? 1 + random.nextInt(3) : 1 + random.nextInt(STARTING);
+                    vote(id, random.nextBoolean());
+                }
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            for (long id = STARTING + 1; id <= STARTING + ADDED; id++) {
+                add(id, 0, 0);
+            }
+        }));
+        // mid-move a joke may be listed at its old or new place, never twice and never missing
+        AtomicBoolean voting = new AtomicBoolean(true);
+        Future<?> reader = executor.submit(() -> {
+            while (voting.get()) {
+                for (JokesRanking.By by : JokesRanking.By.values()) {
+                    List<Long> top = ids(ranking.top(by, Integer.MAX_VALUE));
+                    assertEquals(top.size(), new HashSet<>(top).size(), "duplicate ids");
+                    for (long id = 1; id <= STARTING; id++) {
+                        assertTrue(top.contains(id), "joke " + id + " missing");
+                    }
+                }
+            }
+        });
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        voting.set(false);
+        reader.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        assertRankingMatches(JokesRanking.By.HAHA, entry -> entry.haha.live());
+        assertRankingMatches(JokesRanking.By.BOOHOO, entry -> entry.boohoo.live());
+
+        Set<Long> picked = new HashSet<>();
+        for (int i = 0; i < 100_000 && picked.size() < entries.size(); i++) {
+            picked.add(ranking.random().orElseThrow().getId());
+        }
+        assertEquals(entries.keySet(), picked);
+    }
+
+    // top(by, n) is every joke sorted by its live count (highest first), ties by lower id, with that count
+    private void assertRankingMatches(JokesRanking.By by, ToLongFunction<JokesVoteService.Entry> count) {
+        List<JokesVoteService.Entry> expected = new ArrayList<>(entries.values());
+        expected.sort(Comparator.comparingLong(count).reversed().thenComparingLong(entry -> entry.id));
+        List<Jokes> all = ranking.top(by, expected.size() + 1);
+        assertEquals(expected.size(), all.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Jokes joke = all.get(i);
+            assertEquals(expected.get(i).id, joke.getId());
+            assertEquals(count.applyAsLong(expected.get(i)), by == JokesRanking.By.HAHA ? joke.getHaha() : joke.getBoohoo());
+        }
+        assertEquals(ids(all.subList(0, 10)), ids(ranking.top(by, 10)));
+    }
+
+    private void add(long id, int haha, int boohoo) {
+        JokesVoteService.Entry entry = new JokesVoteService.Entry(new Jokes(id, "joke " + id, haha, boohoo));
+        entries.put(id, entry);
+        ranking.add(entry);
+    }
+
+    // as JokesVoteService.like/jeer
+    private void vote(long id, boolean haha) {
+        JokesVoteService.Entry entry = entries.get(id);
+        (haha ? entry.haha : entry.boohoo).votes.increment();
+        ranking.moved(id);
+    }
+
+    private static List<Long> ids(List<Jokes> jokes) {
+        List<Long> ids = new ArrayList<>();
+        jokes.forEach(joke -> ids.add(joke.getId()));
+        return ids;
+    }
+}
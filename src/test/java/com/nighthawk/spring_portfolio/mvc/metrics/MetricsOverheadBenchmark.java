@@ -0,0 +1,186 @@
+package com.nighthawk.spring_portfolio.mvc.metrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+
+/*
+MetricsOverheadBenchmark compares the application with its metrics off and on under the same closed-loop HTTP load
+--- off: every meter denied (management.metrics.enable.all=false), repositories unwrapped, no endpoint histograms
+--- on: the settings of application.properties, Prometheus registry included
+--- every run is a JVM of its own (same classpath), so both modes start equally cold; the runs alternate, "rounds" per mode
+--- a run starts the application on a temp SQLite file and imports 1000 people through POST /api/person/import;
+    "threads" clients then send requests back to back for "warmup" seconds (not measured) and "seconds" more:
+    calculator and leap year with fresh arguments (past the response cache, so the controllers and Calculator
+    stages run), person by id, person stats, a joke like
+--- reports throughput and HDR p50/p99 per run and the throughput cost of metrics overall,
+    then the size and time of one /actuator/prometheus scrape
+--- mvn test-compile, then run main with the test classpath
+    args: [threads=8] [seconds=15] [rounds=3] [warmup=20]
+ */
+public class MetricsOverheadBenchmark {
+    private static final String[] OFF = { "--management.metrics.enable.all=false", "--metrics.repository.enabled=false",
+            "--management.metrics.distribution.percentiles-histogram.http.server.requests=false" };
+    private static final String[] ON = {};
+    private static final int PEOPLE = 1000;
+    private static final String RESULT = "RESULT ";
+
+    // one measured run
+    static class Result {
+        final Histogram latencies = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        long errors;
+        double throughput;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {  // a child JVM: run <mode> <threads> <seconds> <warmup> <scrape>
+            run(args[1].equals("on") ? ON : OFF, Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]), Boolean.parseBoolean(args[5]));
+            System.exit(0);
+        }
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        System.out.printf("%d threads, %d s after %d s warm-up, %d rounds%n", threads, seconds, warmup, rounds);
+        System.out.printf("%-8s %6s %10s %10s %10s %8s%n", "metrics", "round", "req/s", "p50 ms", "p99 ms", "errors");
+
+        double off = 0;
+        double on = 0;
+        for (int round = 1; round <= rounds; round++) {
+            off += child("off", round, threads, seconds, warmup, false);
+            on += child("on", round, threads, seconds, warmup, round == rounds);
+        }
+        System.out.printf("metrics on: %.1f req/s vs %.1f off, %.2f%% throughput cost%n", on / rounds, off / rounds, 100 * (off - on) / off);
+    }
+
+    // Runs one mode in a new JVM, prints its result lines and returns its throughput
+    private static double child(String mode, int round, int threads, int seconds, int warmup, boolean scrape) throws Exception {
+        Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), MetricsOverheadBenchmark.class.getName(),
+                "run", mode, "" + threads, "" + seconds, "" + warmup, "" + scrape).redirectErrorStream(true).start();
+        double throughput = Double.NaN;
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    String[] fields = line.substring(RESULT.length()).split(" ");
+                    throughput = Double.parseDouble(fields[0]);
+                    System.out.printf("%-8s %6d %10.1f %10.2f %10.2f %8s%n", mode, round, throughput,
+                            Double.parseDouble(fields[1]), Double.parseDouble(fields[2]), fields[3]);
+                } else if (line.startsWith("/actuator/")) {
+                    System.out.println(line);
+                }
+            }
+        }
+        if (process.waitFor() != 0 || Double.isNaN(throughput)) {
+            throw new IllegalStateException(mode + " run " + round + " failed, exit code " + process.exitValue());
+        }
+        return throughput;
+    }
+
+    private static void run(String[] properties, int threads, int seconds, int warmup, boolean scrape) throws Exception {
+        File db = ScratchApplication.tempDatabase("metrics-overhead");
+        try (ConfigurableApplicationContext context = ScratchApplication.start(db, properties)) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newHttpClient();
+            StringBuilder csv = new StringBuilder("email,password,name,dob,bmi\n");
+            for (int i = 0; i < PEOPLE; i++) {
+                csv.append("metrics").append(i).append("@bench.test,benchmark,Metrics Person").append(i).append(",01-15-2000,22\n");
+            }
+            client.send(HttpRequest.newBuilder(URI.create(base + "/api/person/import")).header("Content-Type", "text/csv")
+                    .POST(HttpRequest.BodyPublishers.ofString(csv.toString())).build(), HttpResponse.BodyHandlers.discarding());
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            List<Long> people = jdbc.queryForList("SELECT id FROM person", Long.class);
+            List<Long> jokes = jdbc.queryForList("SELECT id FROM jokes", Long.class);
+
+            load(client, base, people, jokes, threads, warmup);  // JIT, caches, pools
+            Result result = load(client, base, people, jokes, threads, seconds);
+            System.out.printf("%s%.1f %.2f %.2f %d%n", RESULT, result.throughput,
+                    result.latencies.getValueAtPercentile(50) / 1e6, result.latencies.getValueAtPercentile(99) / 1e6, result.errors);
+
+            if (scrape) {
+                long start = System.nanoTime();
+                HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(URI.create(base + "/actuator/prometheus")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                long series = metrics.body().lines().filter(line -> !line.startsWith("#")).count();
+                System.out.printf("/actuator/prometheus: status %d, %d bytes, %d series, %.1f ms%n",
+                        metrics.statusCode(), metrics.body().length(), series, (System.nanoTime() - start) / 1e6);
+            }
+        }
+    }
+
+    private static Result load(HttpClient client, String base, List<Long> people, List<Long> jokes, int threads, int seconds)
+            throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong unique = new AtomicLong();
+        Result[] results = new Result[threads];
+        Thread[] clients = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Result result = results[t] = new Result();
+            clients[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stop.get()) {
+                    String path;
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            path = "/api/calculator/(" + unique.incrementAndGet() + "%20+%2034)%20*%203";
+                            break;
+                        case 1:
+                            path = "/api/calendar/isLeapYear/" + unique.incrementAndGet();
+                            break;
+                        case 2:
+                            path = "/api/person/" + people.get(random.nextInt(people.size()));
+                            break;
+                        case 3:
+                            path = "/api/person/" + people.get(random.nextInt(people.size())) + "/stats?from=2022-01-01&to=2022-12-31";
+                            break;
+                        default:
+                            path = "/api/jokes/like/" + jokes.get(random.nextInt(jokes.size()));
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path));
+                        if (path.startsWith("/api/jokes/like/")) {
+                            request.PUT(HttpRequest.BodyPublishers.noBody());
+                        }
+                        int status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status >= 300) {
+                            result.errors++;
+                        }
+                    } catch (Exception e) {
+                        result.errors++;
+                    }
+                    result.latencies.recordValue(Math.min(System.nanoTime() - start, result.latencies.getHighestTrackableValue()));
+                }
+            });
+            clients[t].start();
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        stop.set(true);
+        Result total = new Result();
+        for (int t = 0; t < threads; t++) {
+            clients[t].join();
+            total.latencies.add(results[t].latencies);
+            total.errors += results[t].errors;
+        }
+        total.throughput = total.latencies.getTotalCount() / (double) seconds;
+        return total;
+    }
+}
@@ -0,0 +1,193 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+import com.nighthawk.spring_portfolio.mvc.person.GoalLeaderboardService.Board;
+
+class GoalLeaderboardServiceTests {
+    private static final long ALICE = 1;
+    private static final long BOB = 2;
+
+    // a clock whose day the test moves on
+    private static class DayClock extends Clock {
+        LocalDate day;
+
+        DayClock(LocalDate day) {
+            this.day = day;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return day.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        }
+    }
+
+    private JdbcTemplate jdbcTemplate;
+    private DayClock clock;
+    private GoalLeaderboardService service;
+
+    @BeforeEach
+    void scratchDatabase() throws Exception {
+        File db = ScratchApplication.tempDatabase("leaderboard");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:sqlite:" + db.getAbsolutePath());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        clock = new DayClock(LocalDate.parse("2026-10-19"));
+        service = new GoalLeaderboardService(jdbcTemplate, clock);
+        service.rebuild();
+    }
+
+    @Test
+    void goalDaysInARowExtendTheStreak() {
+        log(ALICE, "2026-10-17", true);
+        log(ALICE, "2026-10-18", true);
+        log(ALICE, "2026-10-19", true);
+        log(BOB, "2026-10-19", true);
+
+        assertEquals(3, streak(ALICE));
+        assertEquals(1, streak(BOB));
+        assertEquals(List.of(ALICE, BOB), topIds());
+    }
+
+    @Test
+    void aMissedGoalOrAGapStartsOver() {
+        log(ALICE, "2026-10-16", true);
+        log(ALICE, "2026-10-17", false);
+        assertEquals(0, streak(ALICE));
+        log(ALICE, "2026-10-18", true);
+        assertEquals(1, streak(ALICE));
+
+        log(BOB, "2026-10-16", true);
+        log(BOB, "2026-10-18", true);  // 17 never logged
+        assertEquals(1, streak(BOB));
+    }
+
+    @Test
+    void backfillingAnEarlierDayRereadsTheStreak() {
+        log(ALICE, "2026-10-17", true);
+        log(ALICE, "2026-10-19", true);
+        assertEquals(1, streak(ALICE));
+
+        log(ALICE, "2026-10-18", true);
+        assertEquals(3, streak(ALICE));
+
+        log(ALICE, "2026-10-18", false);  // rewritten as a miss
+        assertEquals(1, streak(ALICE));
+    }
+
+    @Test
+    void aStreakLastsUntilADayIsSkipped() {
+        log(ALICE, "2026-10-17", true);
+        log(ALICE, "2026-10-18", true);
+        assertEquals(2, streak(ALICE));  // today not logged yet
+
+        clock.day = LocalDate.parse("2026-10-20");
+        assertEquals(0, streak(ALICE));
+        assertEquals(List.of(), topIds());
+
+        log(ALICE, "2026-10-20", true);
+        assertEquals(1, streak(ALICE));
+    }
+
+    @Test
+    void anOldStreakScoresNothingAfterARebuild() {
+        log(ALICE, "2026-06-01", true);
+        log(ALICE, "2026-06-02", true);
+        log(BOB, "2026-10-19", true);
+
+        service = new GoalLeaderboardService(jdbcTemplate, clock);
+        service.rebuild();
+        assertEquals(0, streak(ALICE));
+        assertEquals(1, streak(BOB));
+    }
+
+    @Test
+    void daysAfterTodayAreLeftOut() {
+        log(ALICE, "2026-10-17", true);
+        log(ALICE, "2026-10-18", true);
+        log(ALICE, "2026-10-19", true);
+        log(ALICE, "2099-01-01", true);
+        assertEquals(3, streak(ALICE));
+
+        log(ALICE, "2026-10-19", true);  // a rewrite re-reads history, still up to today
+        assertEquals(3, streak(ALICE));
+
+        service = new GoalLeaderboardService(jdbcTemplate, clock);
+        service.rebuild();
+        assertEquals(3, streak(ALICE));
+    }
+
+    @Test
+    void rebuildMatchesIncrementalUpdates() {
+        log(ALICE, "2026-10-15", true);
+        log(ALICE, "2026-10-16", false);
+        log(ALICE, "2026-10-17", true);
+        log(ALICE, "2026-10-18", true);
+        log(BOB, "2026-10-18", true);
+        log(BOB, "2026-10-19", true);
+        log(BOB, "2026-10-17", true);
+        List<Leaderboard.Entry> incremental = service.top(Board.STREAK, 10);
+
+        service = new GoalLeaderboardService(jdbcTemplate, clock);
+        service.rebuild();
+        assertEquals(incremental, service.top(Board.STREAK, 10));
+        assertEquals(3, streak(BOB));
+        assertEquals(2, streak(ALICE));
+    }
+
+    // writes the day as PersonStatService does and hands it to the service (no transaction, so at once)
+    private void log(long personId, String date, boolean goal) {
+        List<PersonStat> stored = jdbcTemplate.query(
+                "SELECT steps, goal_status FROM person_stat WHERE person_id = ? AND stat_date = ?",
+                (row, i) -> stat(personId, date, row.getInt(1), row.getBoolean(2)), personId, date);
+        PersonStat current = stat(personId, date, goal ? 10000 : 1000, goal);
+        jdbcTemplate.update("DELETE FROM person_stat WHERE person_id = ? AND stat_date = ?", personId, date);
+        jdbcTemplate.update("INSERT INTO person_stat (person_id, stat_date, steps, goal_status) VALUES (?, ?, ?, ?)",
+                personId, date, current.getSteps(), goal);
+        service.apply(stored.isEmpty() ? null : stored.get(0), current);
+    }
+
+    private static PersonStat stat(long personId, String date, int steps, boolean goal) {
+        PersonStat stat = new PersonStat();
+        stat.setPersonId(personId);
+        stat.setDate(date);
+        stat.setSteps(steps);
+        stat.setGoalStatus(goal);
+        return stat;
+    }
+
+    private long streak(long personId) {
+        Leaderboard.Entry entry = service.rank(Board.STREAK, personId);
+        return entry == null ? 0 : entry.getScore();
+    }
+
+    private List<Long> topIds() {
+        return service.top(Board.STREAK, 10).stream().map(Leaderboard.Entry::getPersonId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,143 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LeaderboardTests {
+
+    @Test
+    void topOrdersByScoreThenLowerId() {
+        Leaderboard board = new Leaderboard();
+        board.set(3, 10);
+        board.set(1, 5);
+        board.set(2, 10);
+        board.set(4, 7);
+
+        List<Leaderboard.Entry> top = board.top(10);
+        assertEquals(List.of(2L, 3L, 4L, 1L), ids(top));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ranks(top));
+        assertEquals(List.of(2L, 3L), ids(board.top(2)));
+    }
+
+    @Test
+    void rankFollowsScoreChanges() {
+        Leaderboard board = new Leaderboard();
+        board.set(1, 5);
+        board.set(2, 3);
+        board.set(3, 1);
+        assertEquals(3, board.rank(3).getRank());
+
+        board.add(3, 10);
+        assertEquals(1, board.rank(3).getRank());
+        assertEquals(11, board.rank(3).getScore());
+        assertEquals(2, board.rank(1).getRank());
+
+        board.set(3, 0);  // a score of 0 leaves the board
+        assertNull(board.rank(3));
+        assertEquals(2, board.size());
+        assertEquals(1, board.rank(1).getRank());
+        assertNull(board.rank(42));
+    }
+
+    @Test
+    void replaceAllSwapsTheWholeBoard() {
+        Leaderboard board = new Leaderboard();
+        board.set(1, 5);
+        board.replaceAll(Map.of(2L, 4L, 3L, 0L, 4L, 9L));
+
+        assertEquals(List.of(4L, 2L), ids(board.top(10)));
+        assertNull(board.rank(1));
+        assertEquals(0, board.score(3));
+        assertEquals(2, board.size());
+    }
+
+    @Test
+    void ranksMatchASortedListUnderRandomUpdates() {
+        Leaderboard board = new Leaderboard();
+        Map<Long, Long> scores = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            long personId = random.nextInt(300);
+            long score = random.nextInt(50);  // includes 0, which removes
+            if (random.nextBoolean()) {
+                board.set(personId, score);
+                scores.put(personId, score);
+            } else {
+                board.add(personId, score - 25);
+                scores.merge(personId, score - 25, Long::sum);
+            }
+        }
+        scores.values().removeIf(score -> score == 0);
+        assertBoardMatches(scores, board);
+    }
+
+    @Test
+    void concurrentAddsKeepScoresAndSpansConsistent() throws Exception {
+        Leaderboard board = new Leaderboard();
+        int threads = 8;
+        int people = 100;
+        int rounds = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    board.add((i + thread) % people, 1);
+                    board.rank(i % people);
+                    board.top(5);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        Map<Long, Long> scores = new HashMap<>();
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < rounds; i++) {
+                scores.merge((long) ((i + t) % people), 1L, Long::sum);
+            }
+        }
+        assertBoardMatches(scores, board);
+    }
+
+    // every person's score and rank as a sorted list would give them
+    private static void assertBoardMatches(Map<Long, Long> scores, Leaderboard board) {
+        List<Long> expected = new ArrayList<>(scores.keySet());
+        expected.sort(Comparator.<Long>comparingLong(scores::get).reversed().thenComparing(Comparator.naturalOrder()));
+        assertEquals(expected.size(), board.size());
+        assertEquals(expected, ids(board.top(expected.size() + 1)));
+        for (int i = 0; i < expected.size(); i++) {
+            Leaderboard.Entry entry = board.rank(expected.get(i));
+            assertEquals(i + 1, entry.getRank());
+            assertEquals(scores.get(expected.get(i)), entry.getScore());
+        }
+    }
+
+    private static List<Long> ids(List<Leaderboard.Entry> entries) {
+        List<Long> ids = new ArrayList<>();
+        entries.forEach(entry -> ids.add(entry.getPersonId()));
+        return ids;
+    }
+
+    private static List<Long> ranks(List<Leaderboard.Entry> entries) {
+        List<Long> ranks = new ArrayList<>();
+        entries.forEach(entry -> ranks.add(entry.getRank()));
+        return ranks;
+    }
+}
@@ -0,0 +1,140 @@
+package com.nighthawk.spring_portfolio.mvc.person;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+
+@SpringBootTest
+class PersonImportServiceTests {
+
+    @DynamicPropertySource
+    static void scratchDatabase(DynamicPropertyRegistry registry) throws IOException {
+        File db = ScratchApplication.tempDatabase("person-import");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + db.getAbsolutePath());
+        for (String property : ScratchApplication.DEFAULTS) {
+            String[] pair = property.split("=", 2);
+            registry.add(pair[0], () -> pair[1]);
+        }
+    }
+
+    @Autowired
+    private PersonImportService importService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void splitCsvHandlesQuotesAndEmptyFields() {
+        assertEquals(List.of("a", "b", "c"), PersonImportService.splitCsv("a,b,c"));
+        assertEquals(List.of("Lim, Jun", "x"), PersonImportService.splitCsv("\"Lim, Jun\",x"));
+        assertEquals(List.of("say \"hi\"", ""), PersonImportService.splitCsv("\"say \"\"hi\"\"\","));
+        assertEquals(List.of("", "", ""), PersonImportService.splitCsv(",,"));
+        assertEquals(List.of("ab,c"), PersonImportService.splitCsv("a\"b,\"c"));  // quotes open mid-field too
+        assertThrows(IllegalArgumentException.class, () -> PersonImportService.splitCsv("\"open,x"));
+    }
+
+    @Test
+    void csvColumnsAreMappedByHeaderInAnyOrder() throws IOException {
+        PersonImportService.Result result = importCsv(
+                "name,bmi,email,dob,password",
+                "\"Lim, Jun\",22,jun@header.test,01-31-2001,secret",
+                "",  // blank lines are skipped
+                "Ada Byron,20,ada@header.test,12-10-1815,\"pa,ss\"");
+
+        assertEquals(2, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertEquals("Lim, Jun", jdbc.queryForObject("select name from person where email = 'jun@header.test'", String.class));
+        assertEquals(22 * 225, jdbc.queryForObject("select goal_step from person where email = 'jun@header.test'", Integer.class));
+        assertEquals("pa,ss", jdbc.queryForObject("select password from person where email = 'ada@header.test'", String.class));
+    }
+
+    @Test
+    void badRowsAreReportedByLineAndSkipped() throws IOException {
+        importCsv("email,password,name,dob,bmi", "taken@report.test,pw,Taken Before,01-01-2000,20");
+
+        PersonImportService.Result result = importCsv(
+                "email,password,name,dob,bmi",
+                "ok1@report.test,pw,Good One,01-01-2000,20",           // line 2
+                "short@report.test,pw,Too Few,01-01-2000",              // 3
+                "baddob@report.test,pw,Bad Dob,2000-01-01,20",          // 4
+                "badbmi@report.test,pw,Bad Bmi,01-01-2000,tall",        // 5
+                ",pw,No Email,01-01-2000,20",                           // 6
+                "not-an-email,pw,Bad Email,01-01-2000,20",              // 7
+                "ok1@report.test,pw,Repeat In File,01-01-2000,20",      // 8
+                "taken@report.test,pw,Stored Already,01-01-2000,20",    // 9
+                "\"open@report.test,pw,Open Quote,01-01-2000,20",       // 10
+                "ok2@report.test,pw,Good Two,01-01-2000,20");           // 11
+
+        assertEquals(2, result.getImported());
+        assertEquals(8, result.getRejected());
+        List<PersonImportService.RowError> errors = result.getErrors();
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 10L, 8L, 9L), errors.stream().map(PersonImportService.RowError::getLine).toList());
+        assertEquals("malformed row: expected 5 columns, found 4", errors.get(0).getError());
+        assertEquals("dob 2000-01-01 error; try MM-dd-yyyy", errors.get(1).getError());
+        assertEquals("bmi tall is not a number", errors.get(2).getError());
+        assertEquals("email is required", errors.get(3).getError());
+        assertTrue(errors.get(4).getError().startsWith("email "), errors.get(4).getError());
+        assertEquals("malformed row: unterminated quote", errors.get(5).getError());
+        assertEquals("ok1@report.test already exists", errors.get(6).getError());
+        assertEquals("taken@report.test already exists", errors.get(7).getError());
+        assertEquals(1, jdbc.queryForObject("select count(*) from person where email = 'ok1@report.test'", Integer.class));
+    }
+
+    @Test
+    void ndjsonRowsAndMalformedLines() throws IOException {
+        PersonImportService.Result result = importPeople(false,
+                "{\"email\":\"nd1@json.test\",\"password\":\"pw\",\"name\":\"Json One\",\"dob\":\"02-03-2004\",\"bmi\":21}",
+                "{\"email\":\"nd2@json.test\",\"password\":\"pw\",\"name\":\"Json Two\"",
+                "{\"email\":\"nd3@json.test\",\"password\":\"pw\",\"name\":\"Json Three\",\"dob\":\"02-03-2004\",\"bmi\":null}");
+
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(2L, result.getErrors().get(0).getLine());
+        assertTrue(result.getErrors().get(0).getError().startsWith("malformed row: "));
+        assertEquals(new PersonImportService.RowError(3, "bmi is required"), result.getErrors().get(1));
+    }
+
+    @Test
+    void aFailedBatchIsRetriedRowByRow() throws IOException {
+        // stands in for a row the database refuses after the checks, ie an email another writer took meanwhile
+        jdbc.execute("create trigger refuse_boom before insert on person when new.name = 'Boom' begin select raise(abort, 'boom'); end");
+        try {
+            PersonImportService.Result result = importCsv(
+                    "email,password,name,dob,bmi",
+                    "r1@retry.test,pw,Row One,01-01-2000,20",
+                    "boom@retry.test,pw,Boom,01-01-2000,20",
+                    "r3@retry.test,pw,Row Three,01-01-2000,20");
+
+            assertEquals(2, result.getImported());
+            assertEquals(List.of(new PersonImportService.RowError(3, "boom@retry.test could not be saved")), result.getErrors());
+            assertEquals(List.of("r1@retry.test", "r3@retry.test"),
+                    jdbc.queryForList("select email from person where email like '%@retry.test' order by email", String.class));
+        } finally {
+            jdbc.execute("drop trigger refuse_boom");
+        }
+    }
+
+    private PersonImportService.Result importCsv(String... lines) throws IOException {
+        return importPeople(true, lines);
+    }
+
+    private PersonImportService.Result importPeople(boolean csv, String... lines) throws IOException {
+        byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return importService.importPeople(new ByteArrayInputStream(body), csv);
+    }
+}
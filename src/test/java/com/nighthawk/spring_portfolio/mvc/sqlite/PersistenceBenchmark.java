@@ -0,0 +1,290 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+
+import org.HdrHistogram.Histogram;
+import org.hibernate.Session;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+import com.nighthawk.spring_portfolio.mvc.jokes.Jokes;
+import com.nighthawk.spring_portfolio.mvc.jokes.JokesJpaRepository;
+import com.nighthawk.spring_portfolio.mvc.person.Person;
+import com.nighthawk.spring_portfolio.mvc.person.PersonJpaRepository;
+import com.nighthawk.spring_portfolio.mvc.person.PersonSearchService;
+import com.nighthawk.spring_portfolio.mvc.person.PersonStatService;
+import com.nighthawk.spring_portfolio.mvc.seed.Seedable;
+
+/*
+PersistenceBenchmark measures the JPA repositories, and the services on top of them, as the tables grow
+--- per journal mode and table size: the application is started on a temp SQLite file (ScratchApplication),
+    person, jokes and person_stat are filled to the size with JDBC batches, then every operation runs in turn
+--- an operation runs for "seconds" on "threads" threads after a one second warm-up, latencies go into HdrHistograms
+--- operations:
+    person.saveAll(n)  n new people in one transaction, one per "batches" size (JDBC batch size set to n)
+    jokes.save         one new joke
+    person.findById, person.findByEmail, jokes.findById   point lookups of stored rows
+    person.search      FTS5 search for a name prefix (PersonSearchService)
+    person.page        a page of 50 after a random (name, id) cursor (keyset paging)
+    jokes.list         every joke in order, only up to 10k rows
+    stats.update       one day upserted through SqliteWriteQueue and PersonStatService, as POST /api/person/setStats
+    stats.range        a month of one person's stats
+--- journal modes: wal = sqlite.tuned.enabled=true (WAL, one writer with grouped commits, query-only readers),
+    rollback = sqlite.tuned.enabled=false (Spring Boot's pool, rollback journal, synchronous FULL); errors (ie SQLITE_BUSY) are counted
+--- mvn test-compile, then run main with the test classpath
+    args, name=value: sizes=1000,100000 modes=wal,rollback batches=1,50,500 seconds=3 threads=4 csv=<file>
+    sizes up to 10000000 work, a 10M row fill takes minutes and a few GB of temp disk
+ */
+public class PersistenceBenchmark {
+    private static final String[] FIRST = { "Ava", "Ben", "Chen", "Dara", "Eli", "Fay", "Gus", "Hana", "Ivan", "Jun",
+            "Kai", "Lena", "Mo", "Nia", "Omar", "Pia", "Quinn", "Rosa", "Sam", "Tara" };
+    private static final String[] LAST = { "Ali", "Brown", "Cruz", "Diaz", "Evans", "Fox", "Garcia", "Han", "Ito", "Jones",
+            "Kim", "Lim", "Moreno", "Nguyen", "Ortiz", "Park", "Quon", "Reyes", "Smith", "Tran" };
+    private static final int LIST_LIMIT = 10_000;
+    private static final int FILL_CHUNK = 10_000;
+    private static final int STAT_DAYS = 30;
+    // filled ids start here: the startup seed data and Hibernate's id pool already hold the low ids
+    private static final long BASE_ID = 1_000_000_000L;
+
+    // one timed operation, called repeatedly from every thread
+    interface Op {
+        void run(ThreadLocalRandom random) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(Map.of("sizes", "1000,100000", "modes", "wal,rollback",
+                "batches", "1,50,500", "seconds", "3", "threads", "4", "csv", ""));
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2 || !options.containsKey(pair[0])) {
+                throw new IllegalArgumentException("unknown argument " + arg + ", expected one of " + options.keySet());
+            }
+            options.put(pair[0], pair[1]);
+        }
+        int seconds = Integer.parseInt(options.get("seconds"));
+        int threads = Integer.parseInt(options.get("threads"));
+        int[] batches = Arrays.stream(options.get("batches").split(",")).mapToInt(Integer::parseInt).toArray();
+        PrintWriter csv = options.get("csv").isEmpty() ? null : new PrintWriter(options.get("csv"));
+        if (csv != null) {
+            csv.println("mode,rows,operation,threads,ops_per_s,rows_per_s,p50_us,p90_us,p99_us,p999_us,max_us,errors");
+        }
+        System.out.printf("%s, %d threads, %d s per operation%n", options, threads, seconds);
+        System.out.printf("%-9s %9s %-26s %10s %10s %9s %9s %9s %9s %9s %7s%n", "mode", "rows", "operation",
+                "ops/s", "rows/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "errors");
+
+        for (String mode : options.get("modes").split(",")) {
+            for (String size : options.get("sizes").split(",")) {
+                run(mode, Integer.parseInt(size), batches, threads, seconds, csv);
+            }
+        }
+        if (csv != null) {
+            csv.close();
+        }
+        System.exit(0);
+    }
+
+    private static void run(String mode, int rows, int[] batches, int threads, int seconds, PrintWriter csv) throws Exception {
+        if (!mode.equals("wal") && !mode.equals("rollback")) {
+            throw new IllegalArgumentException("mode is wal or rollback, not " + mode);
+        }
+        File db = ScratchApplication.tempDatabase("persistence-bench");
+        try (ConfigurableApplicationContext context = ScratchApplication.start(db,
+                "--sqlite.tuned.enabled=" + mode.equals("wal"),
+                "--logging.level.com.nighthawk.spring_portfolio=warn",
+                "--logging.level.org.hibernate=off")) {  // errors are counted instead
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            TransactionTemplate transactions = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            long fillStart = System.nanoTime();
+            fill(jdbc, transactions, rows);
+            System.out.printf("%-9s %9d filled in %.1f s, %d MB%n", mode, rows, (System.nanoTime() - fillStart) / 1e9, db.length() >> 20);
+
+            PersonJpaRepository people = context.getBean(PersonJpaRepository.class);
+            JokesJpaRepository jokes = context.getBean(JokesJpaRepository.class);
+            PersonSearchService search = context.getBean(PersonSearchService.class);
+            PersonStatService stats = context.getBean(PersonStatService.class);
+            SqliteWriteQueue writeQueue = context.getBean(SqliteWriteQueue.class);
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                    context.getBean(javax.persistence.EntityManagerFactory.class));
+            AtomicLong created = new AtomicLong();
+
+            Map<String, Op> ops = new LinkedHashMap<>();
+            for (int batch : batches) {
+                ops.put("person.saveAll(" + batch + ")", random -> transactions.executeWithoutResult(status -> {
+                    entityManager.unwrap(Session.class).setJdbcBatchSize(batch);
+                    List<Person> batchOfPeople = new ArrayList<>(batch);
+                    for (int i = 0; i < batch; i++) {
+                        long n = created.incrementAndGet();
+                        batchOfPeople.add(new Person("new" + n + "@bench.test", "benchmark", name(n), new Date(0), 22));
+                    }
+                    people.saveAll(batchOfPeople);
+                }));
+            }
+            ops.put("jokes.save", random -> jokes.save(new Jokes(null, "New benchmark joke " + created.incrementAndGet(), 0, 0)));
+            ops.put("person.findById", random -> people.findById(BASE_ID + 1 + random.nextInt(rows)));
+            ops.put("person.findByEmail", random -> people.findByEmail(email(1 + random.nextInt(rows))));
+            ops.put("jokes.findById", random -> jokes.findById(BASE_ID + 1 + random.nextInt(rows)));
+            ops.put("person.search", random -> search.search(FIRST[random.nextInt(FIRST.length)].substring(0, 2), 20));
+            ops.put("person.page", random -> {
+                long n = 1 + random.nextInt(rows);
+                people.findPageAfter(name(n), BASE_ID + n, PageRequest.of(0, 50));
+            });
+            if (rows <= LIST_LIMIT) {
+                ops.put("jokes.list", random -> jokes.findAllByOrderByJokeAsc());
+            }
+            ops.put("stats.update", random -> {
+                Person person = new Person();
+                person.setId(BASE_ID + 1 + random.nextInt(Math.max(1, rows / STAT_DAYS)));
+                person.setGoalStep(8000);
+                String date = String.format("2022-12-%02d", 1 + random.nextInt(STAT_DAYS));
+                writeQueue.execute(() -> stats.record(person, date, Map.of("steps", random.nextInt(20000), "calories", random.nextInt(3000))));
+            });
+            ops.put("stats.range", random -> stats.range(BASE_ID + 1 + random.nextInt(Math.max(1, rows / STAT_DAYS)), "2022-12-01", "2022-12-31"));
+
+            for (Map.Entry<String, Op> op : ops.entrySet()) {
+                int rowsPerOp = op.getKey().startsWith("person.saveAll") ? Integer.parseInt(op.getKey().replaceAll("\\D", "")) : 1;
+                report(mode, rows, op.getKey(), threads, rowsPerOp, measure(op.getValue(), threads, seconds), seconds, csv);
+            }
+        }
+    }
+
+    private static String name(long n) {
+        return FIRST[(int) (n % FIRST.length)] + " " + LAST[(int) (n / FIRST.length % LAST.length)] + " " + n;
+    }
+
+    private static String email(long n) {
+        return "person" + n + "@bench.test";
+    }
+
+    private static String joke(long n) {
+        return "Benchmark joke number " + n;
+    }
+
+    // rows people, rows jokes, rows stats (30 days for rows/30 people); the id sequence continues after them
+    private static void fill(JdbcTemplate jdbc, TransactionTemplate transactions, int rows) {
+        fill(jdbc, transactions, rows, "INSERT INTO person (id, bmi, dob, email, goal_step, name, password) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                (statement, n) -> {
+                    statement.setLong(1, BASE_ID + n);
+                    statement.setInt(2, 18 + (int) (n % 15));
+                    statement.setLong(3, 631_152_000_000L + n * 86_400_000L % 946_080_000_000L);
+                    statement.setString(4, email(n));
+                    statement.setInt(5, 8000);
+                    statement.setString(6, name(n));
+                    statement.setString(7, "benchmark");
+                });
+        fill(jdbc, transactions, rows, "INSERT INTO jokes (id, boohoo, haha, joke, key_hash) VALUES (?, 0, 0, ?, ?)",
+                (statement, n) -> {
+                    statement.setLong(1, BASE_ID + n);
+                    statement.setString(2, joke(n));
+                    statement.setString(3, Seedable.hashOf(joke(n)));
+                });
+        fill(jdbc, transactions, rows, "INSERT INTO person_stat (person_id, stat_date, steps, calories, goal_status, extra) VALUES (?, ?, ?, ?, ?, '{}')",
+                (statement, n) -> {
+                    statement.setLong(1, BASE_ID + 1 + (n - 1) / STAT_DAYS);
+                    statement.setString(2, String.format("2022-12-%02d", 1 + (n - 1) % STAT_DAYS));
+                    statement.setInt(3, (int) (n * 7919 % 20000));
+                    statement.setInt(4, (int) (n * 104729 % 3000));
+                    statement.setBoolean(5, n * 7919 % 20000 > 8000);
+                });
+        jdbc.update("UPDATE hibernate_sequence SET next_val = ?", BASE_ID + rows + 1);
+    }
+
+    interface RowSetter {
+        void set(PreparedStatement statement, long n) throws SQLException;
+    }
+
+    private static void fill(JdbcTemplate jdbc, TransactionTemplate transactions, int rows, String sql, RowSetter setter) {
+        for (int start = 1; start <= rows; start += FILL_CHUNK) {
+            int first = start;
+            int count = Math.min(FILL_CHUNK, rows - start + 1);
+            transactions.executeWithoutResult(status -> jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    setter.set(statement, first + i);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            }));
+        }
+    }
+
+    // latencies per thread (histograms are not thread safe), merged once the threads stop
+    private static class Result {
+        final Histogram latencies = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        long errors;
+    }
+
+    private static Result measure(Op op, int threads, int seconds) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        long recordFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);  // warm-up is not recorded
+        Result[] results = new Result[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Result result = results[t] = new Result();
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stop.get()) {
+                    long start = System.nanoTime();
+                    try {
+                        op.run(random);
+                        if (start >= recordFrom) {
+                            result.latencies.recordValue(Math.min(System.nanoTime() - start, result.latencies.getHighestTrackableValue()));
+                        }
+                    } catch (Exception e) {
+                        if (start >= recordFrom) {
+                            result.errors++;
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(1 + seconds));
+        stop.set(true);
+        Result total = new Result();
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total.latencies.add(results[t].latencies);
+            total.errors += results[t].errors;
+        }
+        return total;
+    }
+
+    private static void report(String mode, int rows, String operation, int threads, int rowsPerOp, Result result, int seconds, PrintWriter csv) {
+        Histogram latencies = result.latencies;
+        double opsPerSecond = latencies.getTotalCount() / (double) seconds;
+        long[] micros = {
+                latencies.getValueAtPercentile(50) / 1000, latencies.getValueAtPercentile(90) / 1000,
+                latencies.getValueAtPercentile(99) / 1000, latencies.getValueAtPercentile(99.9) / 1000, latencies.getMaxValue() / 1000 };
+        System.out.printf("%-9s %9d %-26s %10.0f %10.0f %9d %9d %9d %9d %9d %7d%n", mode, rows, operation,
+                opsPerSecond, opsPerSecond * rowsPerOp, micros[0], micros[1], micros[2], micros[3], micros[4], result.errors);
+        if (csv != null) {
+            csv.printf("%s,%d,%s,%d,%.1f,%.1f,%d,%d,%d,%d,%d,%d%n", mode, rows, operation, threads,
+                    opsPerSecond, opsPerSecond * rowsPerOp, micros[0], micros[1], micros[2], micros[3], micros[4], result.errors);
+            csv.flush();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+
+/*
+QueryPlanTests confirms that every repository query is answered from an index (see db/migration/V3__query_indexes.sql)
+--- starts the application on a temp SQLite file (ScratchApplication), so the schema is exactly what the migrations build
+--- calls each method declared on a repository interface once with sample arguments, in a transaction that is rolled back
+--- every SQL statement Hibernate prepares during the call is recorded and run through "EXPLAIN QUERY PLAN"
+--- a plan step "SCAN <table>" without an index, or a temp b-tree for ORDER BY/GROUP BY, fails the check
+    unless the method is listed in EXPECTED_SCANS with the reason
+--- any failure fails "mvn test", the message carries every plan; the plans are also printed when it passes
+ */
+@SpringBootTest
+class QueryPlanTests {
+    // methods that read whole tables by design
+    private static final Map<String, String> EXPECTED_SCANS = Map.of(
+            "PersonJpaRepository.findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase",
+            "LIKE '%term%' can not use a b-tree index, search is served by person_search (FTS5)",
+            "PersonJpaRepository.findByLikeTermNative",
+            "LIKE '%term%' can not use a b-tree index, search is served by person_search (FTS5)",
+            "PersonStatRollupJpaRepository.backfillWeeks", "rebuilds every rollup from every stat",
+            "PersonStatRollupJpaRepository.backfillMonths", "rebuilds every rollup from every stat");
+
+    // Hibernate creates this by class name, so statements are collected in a static list
+    public static class Recorder implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+        static volatile boolean recording;
+
+        @Override
+        public String inspect(String sql) {
+            if (recording) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    @DynamicPropertySource
+    static void scratchDatabase(DynamicPropertyRegistry registry) throws IOException {
+        File db = ScratchApplication.tempDatabase("query-plan");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + db.getAbsolutePath());
+        for (String property : ScratchApplication.DEFAULTS) {
+            String[] pair = property.split("=", 2);
+            registry.add(pair[0], () -> pair[1]);
+        }
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector", Recorder.class::getName);
+    }
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void everyRepositoryQueryUsesAnIndex() {
+        TransactionTemplate transactions = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        StringBuilder report = new StringBuilder();
+        int failures = 0;
+        for (Repository<?, ?> repository : context.getBeansOfType(Repository.class).values()) {
+            for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(repository)) {
+                if (!Repository.class.isAssignableFrom(type) || !type.getPackageName().startsWith("com.nighthawk")) {
+                    continue;
+                }
+                Method[] methods = type.getDeclaredMethods();
+                Arrays.sort(methods, Comparator.comparing(Method::getName));
+                for (Method method : methods) {
+                    if (!method.isDefault() && !method.isSynthetic()) {
+                        failures += check(type.getSimpleName() + "." + method.getName(), repository, method, transactions, jdbc, report);
+                    }
+                }
+            }
+        }
+        System.out.print(report);
+        assertEquals(0, failures, failures + " queries without an index\n" + report);
+    }
+
+    // Adds the plans of one method to report, returns 1 when it fails the check
+    private static int check(String name, Object repository, Method method, TransactionTemplate transactions, JdbcTemplate jdbc,
+                             StringBuilder report) {
+        Recorder.statements.clear();
+        Recorder.recording = true;
+        try {
+            Object[] arguments = Arrays.stream(method.getParameters()).map(QueryPlanTests::sample).toArray();
+            transactions.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                invoke(repository, method, arguments);
+            });
+        } catch (RuntimeException e) {
+            report.append(String.format("FAIL  %s%n      not run: %s%n", name, e.getMessage()));
+            return 1;
+        } finally {
+            Recorder.recording = false;
+        }
+
+        List<String> lines = new ArrayList<>();
+        boolean scans = false;
+        for (String sql : new LinkedHashSet<>(Recorder.statements)) {
+            lines.add(sql);
+            for (String step : explain(jdbc, sql)) {
+                boolean indexed = usesIndex(step);
+                scans |= !indexed;
+                lines.add((indexed ? "        " : "     !  ") + step);
+            }
+        }
+        String expected = EXPECTED_SCANS.get(name);
+        String verdict = !scans ? "OK  " : expected != null ? "SCAN" : "FAIL";
+        report.append(String.format("%s  %s%s%n", verdict, name, scans && expected != null ? " (" + expected + ")" : ""));
+        lines.forEach(line -> report.append("      ").append(line).append(System.lineSeparator()));
+        return scans && expected == null ? 1 : 0;
+    }
+
+    private static void invoke(Object repository, Method method, Object[] arguments) {
+        try {
+            method.invoke(repository, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Plan steps of a statement, parameters bound to null (the plan does not depend on their values)
+    private static List<String> explain(JdbcTemplate jdbc, String sql) {
+        return jdbc.execute((ConnectionCallback<List<String>>) connection -> {
+            List<String> steps = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                    statement.setNull(i, Types.NULL);
+                }
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        steps.add(rows.getString("detail"));
+                    }
+                }
+            }
+            return steps;
+        });
+    }
+
+    /* "SEARCH person USING INDEX ...", "SCAN person USING COVERING INDEX ..." and FTS5's "SCAN person_search VIRTUAL TABLE INDEX ..."
+       read through an index; a bare "SCAN person" reads every row, a temp b-tree sorts every row
+     */
+    static boolean usesIndex(String step) {
+        if (step.startsWith("USE TEMP B-TREE")) {
+            return false;
+        }
+        return !step.startsWith("SCAN ") || step.contains(" INDEX") || step.equals("SCAN CONSTANT ROW");
+    }
+
+    // a collection parameter gets two elements, so IN lists are planned as lists
+    private static Object sample(Parameter parameter) {
+        if (Collection.class.isAssignableFrom(parameter.getType())) {
+            Class<?> element = (Class<?>) ((ParameterizedType) parameter.getParameterizedType()).getActualTypeArguments()[0];
+            return List.of(sample(element), sample(element));
+        }
+        return sample(parameter.getType());
+    }
+
+    private static Object sample(Class<?> type) {
+        if (type == String.class) {
+            return "a";
+        }
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 1;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return true;
+        }
+        if (Pageable.class.isAssignableFrom(type)) {
+            return PageRequest.of(0, 10);
+        }
+        throw new IllegalArgumentException("no sample value for " + type.getName());
+    }
+}
@@ -0,0 +1,120 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.FileSystemUtils;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SqliteBackupServiceTests {
+    private static final int ROWS = 20_000;
+    private static final int KEEP = 2;
+
+    private Path dir;
+    private SqliteBackupService service;
+
+    @BeforeEach
+    void scratchDatabase() throws Exception {
+        File db = ScratchApplication.tempDatabase("backup");
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:sqlite:" + db.getAbsolutePath()));
+        jdbc.execute("create table note (id integer primary key, text varchar not null)");
+        jdbc.update("insert into note (text) with recursive n(i) as (select 1 union all select i + 1 from n where i < ?) "
+                + "select 'note number ' || i from n", ROWS);  // one statement, one commit
+        dir = Files.createTempDirectory("backups");
+        service = new SqliteBackupService("jdbc:sqlite:" + db.getAbsolutePath(), dir.toString(), KEEP, 5000, 1, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void close() {
+        service.stop();
+        FileSystemUtils.deleteRecursively(dir.toFile());
+    }
+
+    @Test
+    void backupIsAGzippedCheckedCopyOfTheDatabase() throws Exception {
+        SqliteBackupService.Backup backup = service.backup().get(1, TimeUnit.MINUTES);
+
+        Path snapshot = Paths.get(backup.getFile());
+        assertTrue(snapshot.getFileName().toString().matches("sqlite-\\d{8}-\\d{6}-\\d{3}\\.db\\.gz"), snapshot.toString());
+        assertEquals(Files.size(snapshot), backup.getBytes());
+        assertTrue(backup.getBytes() < backup.getDatabaseBytes());
+        assertEquals(List.of(snapshot.getFileName().toString()), names(dir));  // no .tmp copy or .part left
+
+        // what a restore does: gunzip over a database file
+        Path restored = dir.resolve("restored.db");
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(snapshot))) {
+            Files.copy(in, restored);
+        }
+        assertEquals(backup.getDatabaseBytes(), Files.size(restored));
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:sqlite:" + restored.toAbsolutePath()));
+        assertEquals("ok", jdbc.queryForObject("PRAGMA quick_check", String.class));
+        assertEquals(ROWS, jdbc.queryForObject("select count(*) from note", Integer.class));
+    }
+
+    @Test
+    void onlyTheNewestSnapshotsAreKept() throws Exception {
+        List<String> written = new ArrayList<>();
+        for (int i = 0; i < KEEP + 2; i++) {
+            written.add(service.backup().get(1, TimeUnit.MINUTES).getFile());
+        }
+        assertEquals(written.size(), new HashSet<>(written).size());  // backups in the same second do not replace each other
+
+        List<String> kept = new ArrayList<>();
+        service.list().forEach(path -> kept.add(path.toString()));
+        assertEquals(List.of(written.get(3), written.get(2)), kept);
+    }
+
+    @Test
+    void aBackupAskedForWhileOneRunsSharesIt() throws Exception {
+        CompletableFuture<SqliteBackupService.Backup> first = service.backup();
+        CompletableFuture<SqliteBackupService.Backup> second = service.backup();
+
+        assertSame(first, second);
+        first.get(1, TimeUnit.MINUTES);
+        assertEquals(1, service.list().size());
+    }
+
+    @Test
+    void aBackupAfterStopFailsInsteadOfHanging() {
+        service.stop();
+
+        for (int i = 0; i < 2; i++) {  // the second would get the first's future if it stayed in flight
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> service.backup().get(1, TimeUnit.SECONDS));
+            assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    private static List<String> names(Path dir) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> names.add(file.getFileName().toString()));
+        }
+        return names;
+    }
+}
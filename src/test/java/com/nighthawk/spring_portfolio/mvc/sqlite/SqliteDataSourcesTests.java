@@ -0,0 +1,61 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+
+class SqliteDataSourcesTests {
+    private SqliteDataSources dataSources;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writes;
+    private TransactionTemplate reads;
+
+    @BeforeEach
+    void scratchDatabase() throws Exception {
+        File db = ScratchApplication.tempDatabase("data-sources");
+        dataSources = new SqliteDataSources("jdbc:sqlite:" + db.getAbsolutePath(), new SqliteDataSources.Settings(), 2, null);
+        jdbc = new JdbcTemplate(dataSources.getDataSource());
+        jdbc.execute("create table note (id integer primary key, text varchar not null)");
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSources.getDataSource());
+        writes = new TransactionTemplate(transactionManager);
+        reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+    }
+
+    @AfterEach
+    void close() {
+        dataSources.close();
+    }
+
+    @Test
+    void readOnlyTransactionsUseAQueryOnlyReader() {
+        assertEquals(1, reads.execute(status -> queryOnly()));
+        assertEquals(0, writes.execute(status -> queryOnly()));
+        assertEquals(0, queryOnly());  // outside a transaction: the writer
+    }
+
+    @Test
+    void aWriteInAReadOnlyTransactionIsRejected() {
+        assertThrows(DataAccessException.class,
+                () -> reads.executeWithoutResult(status -> jdbc.update("insert into note (text) values ('read only')")));
+        assertEquals(0, jdbc.queryForObject("select count(*) from note", Integer.class));
+
+        writes.executeWithoutResult(status -> jdbc.update("insert into note (text) values ('written')"));
+        assertEquals("written", reads.execute(status -> jdbc.queryForObject("select text from note", String.class)));
+    }
+
+    private int queryOnly() {
+        return jdbc.queryForObject("pragma query_only", Integer.class);
+    }
+}
@@ -0,0 +1,205 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+SqliteMixedBenchmark compares mixed read/write throughput of the default setup against the tuned SQLite mode
+--- default: one Hikari pool of 10 (Spring Boot's default), rollback journal, full sync, each write its own transaction
+--- tuned: SqliteDataSources (WAL, synchronous=NORMAL, one writer, query-only readers) with writes through SqliteWriteQueue
+--- the workload is the shape of person_stat: reads sum a month of one person, writes upsert one day
+--- failed operations (ie SQLITE_BUSY) are counted, not retried
+--- runs on a temp SQLite file: mvn test-compile, then run main with the test classpath
+    args: [threads=16] [seconds=5] [writePercent=20]
+ */
+public class SqliteMixedBenchmark {
+    private static final int PEOPLE = 1000;
+    private static final int DAYS = 30;
+
+    // one setup under test
+    interface Store {
+        long read(int person);
+
+        void write(int person, int day, int steps);
+    }
+
+    public static void main(String[] args) throws Exception {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int writePercent = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        System.out.printf("%d threads, %d s, %d%% writes%n", threads, seconds, writePercent);
+        System.out.printf("%8s %10s %10s %8s %12s %12s %12s %12s%n", "setup", "reads/s", "writes/s", "errors",
+                "read p50 us", "read p99 us", "write p50 us", "write p99 us");
+
+        File defaultDb = database();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + defaultDb.getAbsolutePath());
+        config.setDriverClassName("org.sqlite.JDBC");
+        try (HikariDataSource pool = new HikariDataSource(config)) {
+            TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(pool));
+            run("default", storeOf(pool, transactions, work -> transactions.executeWithoutResult(status -> work.run())),
+                    threads, seconds, writePercent);
+        }
+
+        File tunedDb = database();
+        try (SqliteDataSources sqlite = new SqliteDataSources("jdbc:sqlite:" + tunedDb.getAbsolutePath(),
+                new SqliteDataSources.Settings(), 8, null)) {
+            DataSource dataSource = sqlite.getDataSource();
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            SqliteWriteQueue queue = new SqliteWriteQueue(transactionManager, (EntityManager) null, new SimpleMeterRegistry(), true, 64);
+            run("tuned", storeOf(dataSource, new TransactionTemplate(transactionManager), work -> queue.execute(() -> {
+                work.run();
+                return null;
+            })), threads, seconds, writePercent);
+            queue.stop();
+        }
+    }
+
+    interface Writer {
+        void write(Runnable work);
+    }
+
+    private static Store storeOf(DataSource dataSource, TransactionTemplate transactions, Writer writer) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate reads = new TransactionTemplate(transactions.getTransactionManager());
+        reads.setReadOnly(true);
+        return new Store() {
+            @Override
+            public long read(int person) {
+                Long steps = reads.execute(status -> jdbc.queryForObject(
+                        "SELECT sum(steps) FROM bench_stat WHERE person_id = ? AND stat_date BETWEEN ? AND ?",
+                        Long.class, person, "2022-12-01", "2022-12-31"));
+                return steps == null ? 0 : steps;
+            }
+
+            @Override
+            public void write(int person, int day, int steps) {
+                writer.write(() -> jdbc.update("INSERT INTO bench_stat (person_id, stat_date, steps) VALUES (?, ?, ?) "
+                        + "ON CONFLICT(person_id, stat_date) DO UPDATE SET steps = excluded.steps",
+                        person, String.format("2022-12-%02d", day), steps));
+            }
+        };
+    }
+
+    // A fresh file with PEOPLE x DAYS rows, in the default (rollback journal) mode
+    private static File database() throws Exception {
+        File db = File.createTempFile("sqlite-bench", ".db");
+        db.deleteOnExit();
+        new File(db.getPath() + "-wal").deleteOnExit();
+        new File(db.getPath() + "-shm").deleteOnExit();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + db.getAbsolutePath());
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.setMaximumPoolSize(1);
+        try (HikariDataSource pool = new HikariDataSource(config)) {
+            JdbcTemplate jdbc = new JdbcTemplate(pool);
+            jdbc.execute("CREATE TABLE bench_stat (person_id INTEGER, stat_date TEXT, steps INTEGER, PRIMARY KEY (person_id, stat_date))");
+            new TransactionTemplate(new DataSourceTransactionManager(pool)).executeWithoutResult(status -> {
+                List<Object[]> rows = new ArrayList<>();
+                for (int person = 0; person < PEOPLE; person++) {
+                    for (int day = 1; day <= DAYS; day++) {
+                        rows.add(new Object[] { person, String.format("2022-12-%02d", day), 1000 + day });
+                    }
+                }
+                jdbc.batchUpdate("INSERT INTO bench_stat (person_id, stat_date, steps) VALUES (?, ?, ?)", rows);
+            });
+        }
+        return db;
+    }
+
+    private static void run(String name, Store store, int threads, int seconds, int writePercent) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        long[][] readTimes = new long[threads][];
+        long[][] writeTimes = new long[threads][];
+        long[] errors = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                LongList reads = new LongList();
+                LongList writes = new LongList();
+                while (!stop.get()) {
+                    boolean write = random.nextInt(100) < writePercent;
+                    long start = System.nanoTime();
+                    try {
+                        if (write) {
+                            store.write(random.nextInt(PEOPLE), 1 + random.nextInt(DAYS), random.nextInt(20000));
+                        } else {
+                            store.read(random.nextInt(PEOPLE));
+                        }
+                        (write ? writes : reads).add(System.nanoTime() - start);
+                    } catch (RuntimeException e) {
+                        errors[index]++;
+                    }
+                }
+                readTimes[index] = reads.toArray();
+                writeTimes[index] = writes.toArray();
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long[] reads = merge(readTimes);
+        long[] writes = merge(writeTimes);
+        System.out.printf("%8s %10.0f %10.0f %8d %12d %12d %12d %12d%n", name,
+                reads.length / (double) seconds, writes.length / (double) seconds, Arrays.stream(errors).sum(),
+                percentile(reads, 50), percentile(reads, 99), percentile(writes, 50), percentile(writes, 99));
+    }
+
+    private static long[] merge(long[][] parts) {
+        long[] all = Arrays.stream(parts).flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(all);
+        return all;
+    }
+
+    // microseconds
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * (percent / 100.0)))] / 1000;
+    }
+
+    // growable long[], so timing a few million operations does not box
+    private static class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.nighthawk.spring_portfolio.mvc.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.nighthawk.spring_portfolio.ScratchApplication;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SqliteWriteQueueTests {
+    private static final int MAX_BATCH = 64;
+
+    // counts the transactions that reached the database
+    private static class CountingTransactionManager extends DataSourceTransactionManager {
+        final AtomicInteger commits = new AtomicInteger();
+
+        CountingTransactionManager(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            super.doCommit(status);
+            commits.incrementAndGet();
+        }
+    }
+
+    private SqliteDataSources dataSources;
+    private JdbcTemplate jdbc;
+    private CountingTransactionManager transactionManager;
+    private SimpleMeterRegistry registry;
+    private SqliteWriteQueue queue;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void scratchDatabase() throws Exception {
+        File db = ScratchApplication.tempDatabase("write-queue");
+        dataSources = new SqliteDataSources("jdbc:sqlite:" + db.getAbsolutePath(), new SqliteDataSources.Settings(), 2, null);
+        jdbc = new JdbcTemplate(dataSources.getDataSource());
+        jdbc.execute("create table note (id integer primary key, text varchar not null unique)");
+        transactionManager = new CountingTransactionManager(dataSources.getDataSource());
+        registry = new SimpleMeterRegistry();
+        queue = new SqliteWriteQueue(transactionManager, null, registry, true, MAX_BATCH);
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        callers.shutdownNow();
+        queue.stop();
+        dataSources.close();
+    }
+
+    @Test
+    void queuedWorksCommitInOneGroup() throws Exception {
+        CountDownLatch release = holdWriter();
+        int works = 20;
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < works; i++) {
+            String text = "note " + i;
+            results.add(callers.submit(() -> queue.execute(() -> jdbc.update("insert into note (text) values (?)", text))));
+        }
+        awaitQueued(works);
+        int commitsBefore = transactionManager.commits.get();
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertEquals(1, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(works, count());
+        assertEquals(2, transactionManager.commits.get() - commitsBefore);  // the held work, then one for all the others
+        assertEquals(works, (int) registry.get("sqlite.write.batch.size").summary().max());
+    }
+
+    @Test
+    void aFailingWorkFailsAloneAndTheOthersCommit() throws Exception {
+        CountDownLatch release = holdWriter();
+        AtomicInteger firstRuns = new AtomicInteger();
+        Future<Integer> first = callers.submit(() -> queue.execute(() -> {
+            firstRuns.incrementAndGet();
+            return jdbc.update("insert into note (text) values ('first')");
+        }));
+        awaitQueued(1);
+        Future<?> failing = callers.submit(() -> queue.execute(() -> {
+            jdbc.update("insert into note (text) values ('failing')");
+            throw new IllegalStateException("work failed");
+        }));
+        awaitQueued(2);
+        Future<Integer> last = callers.submit(() -> queue.execute(() -> jdbc.update("insert into note (text) values ('last')")));
+        awaitQueued(3);
+        release.countDown();
+
+        assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, last.get(10, TimeUnit.SECONDS));
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertEquals("work failed", failed.getCause().getMessage());
+
+        // the group was rolled back and every work retried alone: the first ran twice, its row is there once
+        assertEquals(2, firstRuns.get());
+        assertEquals(List.of("first", "held", "last"), jdbc.queryForList("select text from note order by text", String.class));
+    }
+
+    @Test
+    void executeOnTheWriterThreadJoinsTheCurrentTransaction() throws Exception {
+        Object[] transactions = new Object[2];
+        Future<?> failed = callers.submit(() -> queue.execute(() -> {
+            transactions[0] = TransactionSynchronizationManager.getResource(dataSources.getDataSource());
+            queue.execute(() -> {
+                transactions[1] = TransactionSynchronizationManager.getResource(dataSources.getDataSource());
+                return jdbc.update("insert into note (text) values ('inner')");
+            });
+            throw new IllegalStateException("outer failed");
+        }));
+
+        assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertNotNull(transactions[0]);
+        assertSame(transactions[0], transactions[1]);
+        assertEquals(0, count());  // the inner write went down with the outer work
+    }
+
+    @Test
+    void worksQueuedBeforeStopCommitAndLaterOnesFail() throws Exception {
+        CountDownLatch release = holdWriter();
+        Future<Integer> pending = callers.submit(() -> queue.execute(() -> jdbc.update("insert into note (text) values ('pending')")));
+        awaitQueued(1);
+        Future<?> stopped = callers.submit(() -> {
+            queue.stop();
+            return null;
+        });
+        release.countDown();
+
+        assertEquals(1, pending.get(10, TimeUnit.SECONDS));
+        stopped.get(10, TimeUnit.SECONDS);
+        assertEquals(1, count());
+        // answered at once, a caller never waits on a writer that is gone
+        IllegalStateException late = assertThrows(IllegalStateException.class,
+                () -> queue.execute(() -> jdbc.update("insert into note (text) values ('late')")));
+        assertEquals("SQLite write queue is stopped", late.getMessage());
+        assertEquals(1, count());
+    }
+
+    // Occupies the writer with a work that waits for the returned latch, so the next works queue up behind it
+    private CountDownLatch holdWriter() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        callers.submit(() -> queue.execute(() -> {
+            running.countDown();
+            release.await();
+            return jdbc.update("insert into note (text) values ('held')");
+        }));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private void awaitQueued(int works) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.get("sqlite.write.queue.depth").gauge().value() < works) {
+            assertTrue(System.nanoTime() < deadline, "works did not queue");
+            Thread.sleep(5);
+        }
+    }
+
+    private int count() {
+        return jdbc.queryForObject("select count(*) from note where text <> 'held'", Integer.class);
+    }
+}